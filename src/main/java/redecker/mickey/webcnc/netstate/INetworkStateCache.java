@@ -2,6 +2,7 @@ package redecker.mickey.webcnc.netstate;
 
 import java.util.List;
 
+import redecker.mickey.webcnc.types.StaleEntriesTuple;
 import redecker.mickey.webcnc.types.Switch;
 
 /**
@@ -88,4 +89,33 @@ public interface INetworkStateCache {
 	 * @return Indicates whether the operation was successful or not
 	 */
 	public Boolean replaceAllSwitches(List<Switch> newSwitchList);
+
+	/**
+	 * Returns the identifiers of all switches with the specified IP address
+	 * 
+	 * @param address the IP address of the switches
+	 * @return List of switch identifiers (Strings)
+	 */
+	public List<String> getSwitchIdentifiersByAddress(String address);
+
+	/**
+	 * Marks a switch or one of its ports as stale after it changed on the switch
+	 * 
+	 * @param identifier the identifier of the switch
+	 * @param portNumber the number of the changed port, or null if the whole
+	 *                   switch may have changed
+	 * @return true if the switch had no stale entries before and has to be
+	 *         scheduled for a refresh, false if a refresh is already pending or
+	 *         the switch doesn´t exist
+	 */
+	public Boolean markStale(String identifier, Integer portNumber);
+
+	/**
+	 * Returns the stale entries of a switch and clears them, so changes during the
+	 * following refresh mark the switch stale again
+	 * 
+	 * @param identifier the identifier of the switch
+	 * @return the stale entries of the switch, or null if it has none
+	 */
+	public StaleEntriesTuple takeStaleEntries(String identifier);
 }
@@ -1,8 +1,12 @@
 package redecker.mickey.webcnc.netstate;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import redecker.mickey.webcnc.types.StaleEntriesTuple;
 import redecker.mickey.webcnc.types.Switch;
 
 /**
@@ -16,9 +20,11 @@ import redecker.mickey.webcnc.types.Switch;
 public class NetworkStateCache implements INetworkStateCache {
 
 	private List<Switch> switches;
+	private Map<String, StaleEntriesTuple> staleEntries; // switches changed since they were read
 
 	public NetworkStateCache() {
 		this.switches = new LinkedList<Switch>();
+		this.staleEntries = new HashMap<String, StaleEntriesTuple>();
 	}
 
 	@Override
@@ -59,6 +65,7 @@ public class NetworkStateCache implements INetworkStateCache {
 		for (Switch currentSwitch : switches) {
 			if (currentSwitch.getSwitchIdentifier().equals(identifier)) {
 				switches.remove(currentSwitch);
+				staleEntries.remove(identifier);
 				return true;
 			}
 		}
@@ -119,8 +126,8 @@ public class NetworkStateCache implements INetworkStateCache {
 	@Override
 	// return value indicates if switch has been found and replaced
 	// returning false means the switch wasn´t found and hasn´t been inserted
-	public Boolean replaceSwitch(Switch newSwitch) {
-		
+	public synchronized Boolean replaceSwitch(Switch newSwitch) {
+
 		for (Switch currentSwitch : switches) {
 			if (currentSwitch.getSwitchIdentifier().equals(newSwitch.getSwitchIdentifier())) {
 				int positionInList = switches.indexOf(currentSwitch);
@@ -133,4 +140,40 @@ public class NetworkStateCache implements INetworkStateCache {
 
 	}
 
+	@Override
+	public synchronized List<String> getSwitchIdentifiersByAddress(String address) {
+		List<String> identifiers = new LinkedList<String>();
+		for (Switch currentSwitch : switches) {
+			if (currentSwitch.getAddress().equals(address)) {
+				identifiers.add(currentSwitch.getSwitchIdentifier());
+			}
+		}
+		return identifiers;
+	}
+
+	@Override
+	public synchronized Boolean markStale(String identifier, Integer portNumber) {
+		if (!getAllSwitchIdentifiers().contains(identifier)) {
+			return false;
+		}
+		StaleEntriesTuple entries = staleEntries.get(identifier);
+		boolean newlyStale = entries == null;
+		if (newlyStale) {
+			entries = new StaleEntriesTuple();
+			entries.stalePortNumbers = new HashSet<Integer>();
+			staleEntries.put(identifier, entries);
+		}
+		if (portNumber == null) {
+			entries.switchStale = true;
+		} else {
+			entries.stalePortNumbers.add(portNumber);
+		}
+		return newlyStale;
+	}
+
+	@Override
+	public synchronized StaleEntriesTuple takeStaleEntries(String identifier) {
+		return staleEntries.remove(identifier);
+	}
+
 }
@@ -57,6 +57,10 @@ public class AddSwitchController {
 				}
 			}
 
+			// forget sessions and keys of a switch previously configured at this address
+			WebcncApplication.snmpSessionPool.invalidateSwitch(newSwitchInfo.getAddress(), newSwitchInfo.getPort());
+			WebcncApplication.switchComms.forgetSwitch(newSwitchInfo.getSwitchIdentifier());
+
 			// fetch data for new switch
 			Switch newSwitch = WebcncApplication.switchComms.getNewSwitchInformation(newSwitchInfo);
 
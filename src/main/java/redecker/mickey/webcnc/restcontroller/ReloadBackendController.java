@@ -1,6 +1,5 @@
 package redecker.mickey.webcnc.restcontroller;
 
-import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
@@ -15,7 +14,6 @@ import org.springframework.web.bind.annotation.RestController;
 import redecker.mickey.webcnc.setup.WebcncApplication;
 import redecker.mickey.webcnc.types.Switch;
 import redecker.mickey.webcnc.types.SwitchInfo;
-import redecker.mickey.webcnc.types.exceptions.CommsException;
 
 /**
  * This class provides an API call to reload the backend from the frontend
@@ -47,22 +45,10 @@ public class ReloadBackendController {
 
 		// fetch switch info from persistent storage
 		List<SwitchInfo> switchInfoList = WebcncApplication.switchcredstore.getAllSwitchInfo();
-		List<Switch> switches = new LinkedList<Switch>();
 
-		// fetch data for each switch
-		for (SwitchInfo switchInfo : switchInfoList) {
-			try {
-				Switch newSwitch = WebcncApplication.switchComms.getNewSwitchInformation(switchInfo);
-				switches.add(newSwitch);
-			}
-			// save unreachable dummy switch
-			catch (CommsException e) {
-				logger.warn("Couldn´t reach " + switchInfo.getSwitchIdentifier() + ", adding unreachable dummy switch");
-				
-				Switch newSwitch = Switch.makeUnreachableDummy(switchInfo);
-				switches.add(newSwitch);
-			}
-		}
+		// fetch data of all switches in parallel, unreachable switches are saved as
+		// dummy switches
+		List<Switch> switches = WebcncApplication.fleetDiscovery.discover(switchInfoList);
 		WebcncApplication.netstatecache.replaceAllSwitches(switches);
 
 		return ResponseEntity.ok("Backend reloaded successfully");
@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import redecker.mickey.webcnc.setup.WebcncApplication;
+import redecker.mickey.webcnc.types.Switch;
 
 /**
  * This class provides an API call to remove a switch permanently from the
@@ -42,6 +43,13 @@ public class RemoveSwitchController {
 
 		try {
 
+			// forget sessions, keys and reachability of the switch
+			Switch oldSwitch = WebcncApplication.netstatecache.getSwitch(switchIdentifier);
+			if (oldSwitch != null) {
+				WebcncApplication.snmpSessionPool.invalidateSwitch(oldSwitch.getAddress(), oldSwitch.getPort());
+			}
+			WebcncApplication.switchComms.forgetSwitch(switchIdentifier);
+
 			WebcncApplication.switchcredstore.removeSwitchFromConfig(switchIdentifier);
 			boolean isDeleted = WebcncApplication.netstatecache.removeSwitch(switchIdentifier);
 
@@ -1,20 +1,24 @@
 package redecker.mickey.webcnc.setup;
 
-import java.util.LinkedList;
+import java.io.IOException;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
 import redecker.mickey.webcnc.netstate.NetworkStateCache;
+import redecker.mickey.webcnc.switchcomms.manager.FleetDiscovery;
 import redecker.mickey.webcnc.switchcomms.manager.SwitchCommsManager;
+import redecker.mickey.webcnc.switchcomms.notification.SNMPNotificationReceiver;
+import redecker.mickey.webcnc.switchcomms.polling.SwitchPoller;
+import redecker.mickey.webcnc.switchcomms.session.SNMPSessionPool;
 import redecker.mickey.webcnc.switchcredstore.SwitchCredStore;
 import redecker.mickey.webcnc.types.Switch;
 import redecker.mickey.webcnc.types.SwitchInfo;
-import redecker.mickey.webcnc.types.exceptions.CommsException;
 
 /**
  * This class provides the startup procedure for the WebCNC
@@ -22,16 +26,26 @@ import redecker.mickey.webcnc.types.exceptions.CommsException;
  * It sets launch parameters to their default or specified values
  * 
  * It fetches all switch credentials from the switchCredStore, retrieves their
- * TSN / LLDP information via the switchComms and stores it in the netStateCache
+ * TSN / LLDP information in parallel via the fleetDiscovery and stores it in
+ * the netStateCache
+ * 
+ * It starts receiving SNMP notifications, so changed switches are refreshed
+ * without a reload, and starts polling all switches in the background
+ * 
+ * On shutdown, it stops polling and receiving notifications and closes all
+ * pooled SNMP sessions
  * 
  * @author Mickey Redecker
  *
  */
 @Component
-public class StartupManager implements ApplicationRunner {
+public class StartupManager implements ApplicationRunner, DisposableBean {
 
 	private static final Logger logger = LogManager.getLogger(StartupManager.class);
 
+	private static final long SNMP_SESSION_IDLE_TIMEOUT = 300000; // close SNMP sessions unused for 5 minutes
+	private static final int SNMP_TRANSPORT_COUNT = 4; // UDP sockets shared by all switches
+
 	@Override
 	public void run(ApplicationArguments args) throws Exception {
 
@@ -39,6 +53,7 @@ public class StartupManager implements ApplicationRunner {
 		WebcncApplication.netstatecache = new NetworkStateCache();
 		WebcncApplication.switchcredstore = new SwitchCredStore("./switchconfig.txt");
 		WebcncApplication.switchComms = new SwitchCommsManager();
+		WebcncApplication.snmpSessionPool = new SNMPSessionPool(SNMP_SESSION_IDLE_TIMEOUT, SNMP_TRANSPORT_COUNT);
 
 		// set password
 		String password = "admin"; // Default password
@@ -86,28 +101,181 @@ public class StartupManager implements ApplicationRunner {
 		}
 		WebcncApplication.switchConnectionTimeout = switchConnectionTimeout;
 
-		// fetch switch info from persistent storage
-		List<SwitchInfo> switchInfoList = WebcncApplication.switchcredstore.getAllSwitchInfo();
-		List<Switch> switches = new LinkedList<Switch>();
+		// set switchConnectionTimeoutFloor
+		Integer switchConnectionTimeoutFloor = 100; // default switchConnectionTimeoutFloor
+		if (args.containsOption("switchConnectionTimeoutFloor")) {
+			List<String> values = args.getOptionValues("switchConnectionTimeoutFloor");
+			if (values != null && !values.isEmpty()) {
+				try {
+					switchConnectionTimeoutFloor = Integer.parseInt(values.get(0));
+					if (switchConnectionTimeoutFloor < 1 || switchConnectionTimeoutFloor > 1000000) {
+						switchConnectionTimeoutFloor = 100;
+						logger.warn("Invalid switchConnectionTimeoutFloor value provided, using default value: " + switchConnectionTimeoutFloor);
+					}
+				} catch (NumberFormatException e) {
+					logger.warn("Invalid switchConnectionTimeoutFloor value provided, using default value: " + switchConnectionTimeoutFloor);
+				}
+			}
+		}
+
+		// set switchConnectionTimeoutCeiling
+		Integer switchConnectionTimeoutCeiling = 10000; // default switchConnectionTimeoutCeiling
+		if (args.containsOption("switchConnectionTimeoutCeiling")) {
+			List<String> values = args.getOptionValues("switchConnectionTimeoutCeiling");
+			if (values != null && !values.isEmpty()) {
+				try {
+					switchConnectionTimeoutCeiling = Integer.parseInt(values.get(0));
+					if (switchConnectionTimeoutCeiling < 1 || switchConnectionTimeoutCeiling > 1000000) {
+						switchConnectionTimeoutCeiling = 10000;
+						logger.warn("Invalid switchConnectionTimeoutCeiling value provided, using default value: " + switchConnectionTimeoutCeiling);
+					}
+				} catch (NumberFormatException e) {
+					logger.warn("Invalid switchConnectionTimeoutCeiling value provided, using default value: " + switchConnectionTimeoutCeiling);
+				}
+			}
+		}
+		if (switchConnectionTimeoutFloor > switchConnectionTimeoutCeiling) {
+			switchConnectionTimeoutFloor = 100;
+			switchConnectionTimeoutCeiling = 10000;
+			logger.warn("switchConnectionTimeoutFloor is greater than switchConnectionTimeoutCeiling, using default values: "
+					+ switchConnectionTimeoutFloor + " and " + switchConnectionTimeoutCeiling);
+		}
+		WebcncApplication.switchConnectionTimeoutFloor = switchConnectionTimeoutFloor;
+		WebcncApplication.switchConnectionTimeoutCeiling = switchConnectionTimeoutCeiling;
+
+		// set switchRequestWindow
+		Integer switchRequestWindow = 4; // default switchRequestWindow
+		if (args.containsOption("switchRequestWindow")) {
+			List<String> values = args.getOptionValues("switchRequestWindow");
+			if (values != null && !values.isEmpty()) {
+				try {
+					switchRequestWindow = Integer.parseInt(values.get(0));
+					if (switchRequestWindow < 1 || switchRequestWindow > 64) {
+						switchRequestWindow = 4;
+						logger.warn("Invalid switchRequestWindow value provided, using default value: " + switchRequestWindow);
+					}
+				} catch (NumberFormatException e) {
+					logger.warn("Invalid switchRequestWindow value provided, using default value: " + switchRequestWindow);
+				}
+			}
+		}
+		WebcncApplication.switchRequestWindow = switchRequestWindow;
+
+		// set notificationPort
+		Integer notificationPort = 162; // default notificationPort
+		if (args.containsOption("notificationPort")) {
+			List<String> values = args.getOptionValues("notificationPort");
+			if (values != null && !values.isEmpty()) {
+				try {
+					notificationPort = Integer.parseInt(values.get(0));
+					if (notificationPort < 0 || notificationPort > 65535) {
+						notificationPort = 162;
+						logger.warn("Invalid notificationPort value provided, using default value: " + notificationPort);
+					}
+				} catch (NumberFormatException e) {
+					logger.warn("Invalid notificationPort value provided, using default value: " + notificationPort);
+				}
+			}
+		}
 
-		// fetch switch data for each switch
-		for (SwitchInfo switchInfo : switchInfoList) {
+		// receive SNMP notifications, port 0 disables the receiver
+		if (notificationPort != 0) {
+			SNMPNotificationReceiver receiver = new SNMPNotificationReceiver(WebcncApplication.netstatecache,
+					WebcncApplication.switchComms, WebcncApplication.switchcredstore);
 			try {
-				Switch newSwitch = WebcncApplication.switchComms.getNewSwitchInformation(switchInfo);
-				switches.add(newSwitch);
-				logger.info("Switch " + newSwitch.getSwitchIdentifier() + " data retrieved successfully");
+				WebcncApplication.snmpSessionPool.addNotificationListener(notificationPort, receiver);
+				WebcncApplication.notificationReceiver = receiver;
+			} catch (IOException e) {
+				receiver.close();
+				logger.warn("Couldn´t receive SNMP notifications on port " + notificationPort
+						+ ", changes of switches are only noticed on reload");
 			}
-			// save unreachable dummy switch
-			catch (CommsException e) {
-				
-				Switch newSwitch = Switch.makeUnreachableDummy(switchInfo);
-				switches.add(newSwitch);
-				logger.warn("Couldn´t retrieve data for switch " + newSwitch.getSwitchIdentifier()
-						+ " , unreachable dummy switch added");
+		}
+
+		// set discoveryParallelism
+		Integer discoveryParallelism = 16; // default discoveryParallelism
+		if (args.containsOption("discoveryParallelism")) {
+			List<String> values = args.getOptionValues("discoveryParallelism");
+			if (values != null && !values.isEmpty()) {
+				try {
+					discoveryParallelism = Integer.parseInt(values.get(0));
+					if (discoveryParallelism < 1 || discoveryParallelism > 1024) {
+						discoveryParallelism = 16;
+						logger.warn("Invalid discoveryParallelism value provided, using default value: " + discoveryParallelism);
+					}
+				} catch (NumberFormatException e) {
+					logger.warn("Invalid discoveryParallelism value provided, using default value: " + discoveryParallelism);
+				}
+			}
+		}
+
+		// set discoveryDeadline
+		Integer discoveryDeadline = 60000; // default discoveryDeadline
+		if (args.containsOption("discoveryDeadline")) {
+			List<String> values = args.getOptionValues("discoveryDeadline");
+			if (values != null && !values.isEmpty()) {
+				try {
+					discoveryDeadline = Integer.parseInt(values.get(0));
+					if (discoveryDeadline < 1 || discoveryDeadline > 10000000) {
+						discoveryDeadline = 60000;
+						logger.warn("Invalid discoveryDeadline value provided, using default value: " + discoveryDeadline);
+					}
+				} catch (NumberFormatException e) {
+					logger.warn("Invalid discoveryDeadline value provided, using default value: " + discoveryDeadline);
+				}
 			}
 		}
+		WebcncApplication.fleetDiscovery = new FleetDiscovery(WebcncApplication.switchComms, discoveryParallelism,
+				discoveryDeadline);
+
+		// fetch switch info from persistent storage
+		List<SwitchInfo> switchInfoList = WebcncApplication.switchcredstore.getAllSwitchInfo();
+
+		// fetch switch data of all switches in parallel, unreachable switches are
+		// saved as dummy switches
+		List<Switch> switches = WebcncApplication.fleetDiscovery.discover(switchInfoList);
 		WebcncApplication.netstatecache.replaceAllSwitches(switches);
+
+		// set pollInterval
+		Integer pollInterval = 60000; // default pollInterval
+		if (args.containsOption("pollInterval")) {
+			List<String> values = args.getOptionValues("pollInterval");
+			if (values != null && !values.isEmpty()) {
+				try {
+					pollInterval = Integer.parseInt(values.get(0));
+					if (pollInterval < 0 || (pollInterval > 0 && pollInterval < 1000) || pollInterval > 86400000) {
+						pollInterval = 60000;
+						logger.warn("Invalid pollInterval value provided, using default value: " + pollInterval);
+					}
+				} catch (NumberFormatException e) {
+					logger.warn("Invalid pollInterval value provided, using default value: " + pollInterval);
+				}
+			}
+		}
+
+		// poll the switches in the background, interval 0 disables the poller
+		if (pollInterval != 0) {
+			WebcncApplication.switchPoller = new SwitchPoller(WebcncApplication.netstatecache,
+					WebcncApplication.switchComms, WebcncApplication.switchcredstore, pollInterval);
+			WebcncApplication.switchPoller.start();
+		}
 		logger.info("Startup procedure finished");
 
 	}
+
+	@Override
+	public void destroy() throws Exception {
+		if (WebcncApplication.switchPoller != null) {
+			WebcncApplication.switchPoller.close();
+		}
+		if (WebcncApplication.notificationReceiver != null) {
+			WebcncApplication.notificationReceiver.close();
+		}
+		if (WebcncApplication.fleetDiscovery != null) {
+			WebcncApplication.fleetDiscovery.close();
+		}
+		if (WebcncApplication.snmpSessionPool != null) {
+			WebcncApplication.snmpSessionPool.close();
+		}
+	}
 }
@@ -5,7 +5,11 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 
 import redecker.mickey.webcnc.netstate.INetworkStateCache;
+import redecker.mickey.webcnc.switchcomms.manager.FleetDiscovery;
 import redecker.mickey.webcnc.switchcomms.manager.ISwitchCommsManager;
+import redecker.mickey.webcnc.switchcomms.notification.SNMPNotificationReceiver;
+import redecker.mickey.webcnc.switchcomms.polling.SwitchPoller;
+import redecker.mickey.webcnc.switchcomms.session.SNMPSessionPool;
 import redecker.mickey.webcnc.switchcredstore.ISwitchCredStore;
 
 /**
@@ -23,9 +27,16 @@ public class WebcncApplication {
 	public static INetworkStateCache netstatecache;
 	public static ISwitchCredStore switchcredstore;
 	public static ISwitchCommsManager switchComms;
+	public static FleetDiscovery fleetDiscovery;
+	public static SNMPSessionPool snmpSessionPool;
+	public static SNMPNotificationReceiver notificationReceiver;
+	public static SwitchPoller switchPoller;
 	public static String password;
 	public static Integer switchConnectionRetries;
 	public static Integer switchConnectionTimeout;
+	public static Integer switchConnectionTimeoutFloor;
+	public static Integer switchConnectionTimeoutCeiling;
+	public static Integer switchRequestWindow;
 
 	public static void main(String[] args) {
 		Thread.setDefaultUncaughtExceptionHandler(new GlobalExceptionHandler());
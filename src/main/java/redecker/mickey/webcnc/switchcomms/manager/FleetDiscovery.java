@@ -0,0 +1,143 @@
+package redecker.mickey.webcnc.switchcomms.manager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import redecker.mickey.webcnc.types.Switch;
+import redecker.mickey.webcnc.types.SwitchInfo;
+import redecker.mickey.webcnc.types.exceptions.CommsException;
+
+/**
+ * This class retrieves the TSN / LLDP information of a whole fleet of switches
+ * in parallel
+ * 
+ * At most parallelism switches are contacted at the same time, the others wait
+ * for a free thread. Every switch has a deadline that starts once it is
+ * contacted. A switch that didn´t answer until its deadline or whose data
+ * couldn´t be retrieved is replaced by an unreachable dummy switch. The thread
+ * retrieving a switch that missed its deadline is interrupted, so it stops
+ * waiting for the switch and is free for the next one.
+ * 
+ * The discovered switches are returned all at once, so the caller can publish
+ * them to the netStateCache in one step
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class FleetDiscovery {
+
+	private static final Logger logger = LogManager.getLogger(FleetDiscovery.class);
+
+	private final ISwitchCommsManager switchComms;
+	private final long deadlineMillis;
+	private final ExecutorService discoverer;
+
+	/**
+	 * 
+	 * @param switchComms    the manager used to retrieve the data of a switch
+	 * @param parallelism    the maximum number of switches contacted at the same
+	 *                       time
+	 * @param deadlineMillis the time in ms a single switch may take
+	 */
+	public FleetDiscovery(ISwitchCommsManager switchComms, int parallelism, long deadlineMillis) {
+		if (parallelism < 1 || deadlineMillis < 1) {
+			throw new IllegalArgumentException("parallelism and deadlineMillis must be greater than 0");
+		}
+		this.switchComms = switchComms;
+		this.deadlineMillis = deadlineMillis;
+		this.discoverer = Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "fleet-discovery");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Retrieves the data of all switches and waits until every switch answered
+	 * or reached its deadline
+	 * 
+	 * @param switchInfoList the credentials of the switches
+	 * @return a Switch for every SwitchInfo in the same order, unreachable dummy
+	 *         switches for switches that couldn´t be retrieved
+	 */
+	public List<Switch> discover(List<SwitchInfo> switchInfoList) {
+
+		long start = System.nanoTime();
+		List<CompletableFuture<Switch>> results = new ArrayList<CompletableFuture<Switch>>(switchInfoList.size());
+		for (SwitchInfo switchInfo : switchInfoList) {
+			CompletableFuture<Switch> result = new CompletableFuture<Switch>();
+			discoverer.execute(() -> discoverSwitch(switchInfo, result));
+			results.add(result);
+		}
+
+		List<Switch> switches = new ArrayList<Switch>(results.size());
+		int unreachable = 0;
+		for (CompletableFuture<Switch> result : results) {
+			Switch newSwitch = result.join();
+			if (!newSwitch.isReachable()) {
+				unreachable++;
+			}
+			switches.add(newSwitch);
+		}
+		logger.info("Discovered " + switches.size() + " switches (" + unreachable + " unreachable) in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+		return switches;
+	}
+
+	/**
+	 * Stops accepting new discoveries, running discoveries are finished
+	 */
+	public void close() {
+		discoverer.shutdown();
+	}
+
+	private void discoverSwitch(SwitchInfo switchInfo, CompletableFuture<Switch> result) {
+		String identifier = switchInfo.getSwitchIdentifier();
+		Switch dummy = Switch.makeUnreachableDummy(switchInfo);
+		// the deadline starts once the switch is contacted, not while it waits for a thread
+		Thread worker = Thread.currentThread();
+		CompletableFuture.runAsync(() -> {
+			// only a worker that is still retrieving this switch is interrupted
+			synchronized (result) {
+				if (result.complete(dummy)) {
+					worker.interrupt();
+				}
+			}
+		}, CompletableFuture.delayedExecutor(deadlineMillis, TimeUnit.MILLISECONDS));
+		try {
+			Switch newSwitch = switchComms.getNewSwitchInformation(switchInfo);
+			if (complete(result, newSwitch)) {
+				logger.info("Switch " + identifier + " data retrieved successfully");
+			} else {
+				logger.warn("Switch " + identifier + " answered after its deadline, unreachable dummy switch added");
+			}
+		} catch (CommsException e) {
+			if (complete(result, dummy)) {
+				logger.warn("Couldn´t retrieve data for switch " + identifier + " , unreachable dummy switch added");
+			} else {
+				logger.warn("Couldn´t retrieve data for switch " + identifier
+						+ " until its deadline, unreachable dummy switch added");
+			}
+		} catch (RuntimeException e) {
+			complete(result, dummy);
+			logger.error("Retrieving data for switch " + identifier + " failed, unreachable dummy switch added", e);
+		} finally {
+			// the deadline may have passed after the switch was retrieved
+			Thread.interrupted();
+		}
+	}
+
+	// completes the result unless the deadline already did
+	private static boolean complete(CompletableFuture<Switch> result, Switch newSwitch) {
+		synchronized (result) {
+			return result.complete(newSwitch);
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package redecker.mickey.webcnc.switchcomms.manager;
 
+import java.util.Collection;
+
 import redecker.mickey.webcnc.types.Port;
 import redecker.mickey.webcnc.types.Switch;
 import redecker.mickey.webcnc.types.SwitchInfo;
@@ -33,7 +35,8 @@ public interface ISwitchCommsManager {
 
 	/**
 	 * A function that gathers new TSN and LLDP data from an already known switch
-	 * using the ISwitchCommsCommunicator interface
+	 * using the ISwitchCommsCommunicator interface. Only data that changed since
+	 * the last call is read again.
 	 * 
 	 * @param oldSwitch The switch to gather updated data from
 	 * @return A Switch object with the new TSN and LLDP data gathered from the
@@ -42,6 +45,19 @@ public interface ISwitchCommsManager {
 	 */
 	public Switch getUpdatedSwitch(Switch oldSwitch) throws CommsException;
 
+	/**
+	 * A function that gathers new TSN data of some ports of an already known
+	 * switch. The sysname, LLDP data and all other ports are taken from the old
+	 * switch.
+	 * 
+	 * @param oldSwitch   The switch to gather updated data from
+	 * @param portNumbers The numbers of the ports to update, ports that are no TSN
+	 *                    ports of the switch are ignored
+	 * @return A Switch object with the new TSN data of the ports
+	 * @throws CommsException If an error occurs during SNMP calls to the switch
+	 */
+	public Switch getUpdatedPorts(Switch oldSwitch, Collection<Integer> portNumbers) throws CommsException;
+
 	/**
 	 * A function that sets new TSN parameters for a port on a known switch using
 	 * the ISwitchCommsCommunicator interface
@@ -51,4 +67,33 @@ public interface ISwitchCommsManager {
 	 * @throws CommsException If an error occurs during SNMP calls to the switch
 	 */
 	public void setPortParameters(Port newPort, Switch oldSwitch) throws CommsException;
+
+	/**
+	 * A function that forgets everything known about the reachability and the
+	 * recorded data of a switch, for example after the switch was removed or its
+	 * credentials changed
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 */
+	public void forgetSwitch(String switchIdentifier);
+
+	/**
+	 * A function that forgets the failed calls to a switch, so the next call
+	 * contacts it again, for example after the switch sent a notification. The
+	 * recorded data of the switch is kept.
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 */
+	public void resetReachability(String switchIdentifier);
+
+	/**
+	 * A function that runs an action while holding the lock of a switch, so no
+	 * other operation on the switch runs at the same time. The operations of this
+	 * interface called by the action don´t wait for the lock. Used to read a
+	 * switch and publish the result before a later operation can overtake it.
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @param action           the action to run
+	 */
+	public void runLocked(String switchIdentifier, Runnable action);
 }
@@ -0,0 +1,205 @@
+package redecker.mickey.webcnc.switchcomms.manager;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import redecker.mickey.webcnc.types.LLDPDataTuple;
+import redecker.mickey.webcnc.types.Port;
+import redecker.mickey.webcnc.types.QbvChangeIndicatorsTuple;
+
+/**
+ * This class remembers the change indicators last read from every switch
+ * together with the data read after them
+ * 
+ * A port whose change indicators didn´t move since they were recorded still
+ * has the recorded operational parameters, so its gate control list doesn´t
+ * have to be read again. The same holds for the LLDP remote data and the last
+ * change time of the LLDP remote table.
+ * 
+ * The data is always recorded together with the indicators read before it, so
+ * the recorded data is never older than its indicators. Ports and LLDP data
+ * are only recorded by incremental refreshes and have to be forgotten whenever
+ * they are read or changed in another way.
+ * 
+ * Switches that refused to provide change indicators are remembered until they
+ * are forgotten, so their refreshes read all data without asking again.
+ * 
+ * The tracker is thread-safe, but a switch must only be refreshed by one
+ * thread at a time
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SwitchChangeTracker {
+
+	private final Map<String, KnownSwitch> switches = new ConcurrentHashMap<String, KnownSwitch>();
+
+	/**
+	 * Compares the change indicators read from a switch with the recorded ones
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @param indicators       the change indicators read from the switch
+	 * @return the numbers of all ports whose indicators moved or that weren´t
+	 *         recorded yet, in the order of indicators
+	 */
+	public List<Integer> getChangedPorts(String switchIdentifier, List<QbvChangeIndicatorsTuple> indicators) {
+		KnownSwitch knownSwitch = switches.get(switchIdentifier);
+		List<Integer> changedPortNumbers = new LinkedList<Integer>();
+		for (QbvChangeIndicatorsTuple portIndicators : indicators) {
+			KnownPort knownPort = knownSwitch == null ? null : knownSwitch.ports.get(portIndicators.portNumber);
+			if (knownPort == null || !equalIndicators(knownPort.indicators, portIndicators)) {
+				changedPortNumbers.add(portIndicators.portNumber);
+			}
+		}
+		return changedPortNumbers;
+	}
+
+	/**
+	 * Returns the recorded port of a switch
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @param portNumber       the number of the port
+	 * @return a deep copy of the recorded port, or null if none was recorded
+	 */
+	public Port getKnownPort(String switchIdentifier, Integer portNumber) {
+		KnownSwitch knownSwitch = switches.get(switchIdentifier);
+		KnownPort knownPort = knownSwitch == null ? null : knownSwitch.ports.get(portNumber);
+		return knownPort == null ? null : knownPort.port.makeDeepCopy();
+	}
+
+	/**
+	 * Records a port together with the change indicators read before it
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @param indicators       the change indicators of the port
+	 * @param port             the port built from the parameters read after the
+	 *                         indicators
+	 */
+	public void recordPort(String switchIdentifier, QbvChangeIndicatorsTuple indicators, Port port) {
+		KnownPort knownPort = new KnownPort();
+		knownPort.indicators = indicators;
+		knownPort.port = port.makeDeepCopy();
+		switches.computeIfAbsent(switchIdentifier, identifier -> new KnownSwitch()).ports.put(port.getPortNumber(),
+				knownPort);
+	}
+
+	/**
+	 * Forgets the recorded ports, so they are read completely on the next refresh
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @param portNumbers      the numbers of the ports
+	 */
+	public void forgetPorts(String switchIdentifier, Collection<Integer> portNumbers) {
+		KnownSwitch knownSwitch = switches.get(switchIdentifier);
+		if (knownSwitch != null) {
+			knownSwitch.ports.keySet().removeAll(portNumbers);
+		}
+	}
+
+	/**
+	 * Compares the last change time of the LLDP remote table read from a switch
+	 * with the recorded one
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @param lastChange       the lldpStatsRemTablesLastChangeTime read from the
+	 *                         switch
+	 * @return true if the time moved or no LLDP data was recorded yet
+	 */
+	public boolean hasLLDPRemDataChanged(String switchIdentifier, Long lastChange) {
+		KnownSwitch knownSwitch = switches.get(switchIdentifier);
+		KnownLLDPRemData knownData = knownSwitch == null ? null : knownSwitch.lldpRemData;
+		return knownData == null || !knownData.lastChange.equals(lastChange);
+	}
+
+	/**
+	 * Returns the recorded LLDP remote data of a switch
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @return a copy of the recorded list, or null if none was recorded
+	 */
+	public List<LLDPDataTuple> getKnownLLDPRemData(String switchIdentifier) {
+		KnownSwitch knownSwitch = switches.get(switchIdentifier);
+		KnownLLDPRemData knownData = knownSwitch == null ? null : knownSwitch.lldpRemData;
+		return knownData == null ? null : new LinkedList<LLDPDataTuple>(knownData.data);
+	}
+
+	/**
+	 * Records the LLDP remote data of a switch together with the last change time
+	 * read before it
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @param lastChange       the lldpStatsRemTablesLastChangeTime of the switch
+	 * @param data             the LLDP remote data read after the last change
+	 *                         time
+	 */
+	public void recordLLDPRemData(String switchIdentifier, Long lastChange, List<LLDPDataTuple> data) {
+		KnownLLDPRemData knownData = new KnownLLDPRemData();
+		knownData.lastChange = lastChange;
+		knownData.data = new LinkedList<LLDPDataTuple>(data);
+		switches.computeIfAbsent(switchIdentifier, identifier -> new KnownSwitch()).lldpRemData = knownData;
+	}
+
+	/**
+	 * Records that a switch doesn´t provide change indicators. Recorded ports and
+	 * LLDP data of the switch are kept.
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 */
+	public void recordIndicatorsUnsupported(String switchIdentifier) {
+		switches.computeIfAbsent(switchIdentifier, identifier -> new KnownSwitch()).indicatorsUnsupported = true;
+	}
+
+	/**
+	 * Checks if the change indicators of a switch can be read
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @return false if the switch refused to provide change indicators since it
+	 *         was last forgotten
+	 */
+	public boolean areIndicatorsSupported(String switchIdentifier) {
+		KnownSwitch knownSwitch = switches.get(switchIdentifier);
+		return knownSwitch == null || !knownSwitch.indicatorsUnsupported;
+	}
+
+	/**
+	 * Forgets everything recorded for a switch, so it is read completely on the
+	 * next refresh
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 */
+	public void forgetSwitch(String switchIdentifier) {
+		switches.remove(switchIdentifier);
+	}
+
+	private static boolean equalIndicators(QbvChangeIndicatorsTuple known, QbvChangeIndicatorsTuple read) {
+		return known.gateEnabled == read.gateEnabled && known.configPending == read.configPending
+				&& known.operControlListLength.equals(read.operControlListLength)
+				&& known.configChangeTime.seconds.equals(read.configChangeTime.seconds)
+				&& known.configChangeTime.nanoseconds.equals(read.configChangeTime.nanoseconds);
+	}
+
+	// the recorded data of one switch
+	private static class KnownSwitch {
+
+		private final Map<Integer, KnownPort> ports = new ConcurrentHashMap<Integer, KnownPort>();
+		private volatile KnownLLDPRemData lldpRemData = null;
+		private volatile boolean indicatorsUnsupported = false;
+	}
+
+	// a recorded port and the change indicators read before it
+	private static class KnownPort {
+
+		private QbvChangeIndicatorsTuple indicators;
+		private Port port;
+	}
+
+	// the recorded LLDP remote data and the last change time read before it
+	private static class KnownLLDPRemData {
+
+		private Long lastChange;
+		private List<LLDPDataTuple> data;
+	}
+}
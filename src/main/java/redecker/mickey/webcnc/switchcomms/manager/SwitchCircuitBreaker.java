@@ -0,0 +1,184 @@
+package redecker.mickey.webcnc.switchcomms.manager;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import redecker.mickey.webcnc.types.enums.CircuitState;
+import redecker.mickey.webcnc.types.exceptions.CircuitOpenException;
+import redecker.mickey.webcnc.types.exceptions.PDUErrorException;
+
+/**
+ * This class keeps a circuit breaker for every switch
+ * 
+ * A switch that failed to answer several calls in a row is considered
+ * unreachable and its circuit is opened. Calls to a switch with an open circuit
+ * are rejected immediately with a CircuitOpenException instead of waiting for
+ * all timeouts and retries again. In the background the switch is probed in a
+ * fixed interval, the circuit is half-open while a probe is running. Once a
+ * probe is answered the circuit is closed and calls are let through again.
+ * 
+ * Only unanswered calls count as failures. A switch answering with an error is
+ * reachable, so a PDUErrorException closes the circuit like a success.
+ * 
+ * The circuit breaker is thread-safe
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SwitchCircuitBreaker {
+
+	private static final Logger logger = LogManager.getLogger(SwitchCircuitBreaker.class);
+
+	private final int failureThreshold;
+	private final long probeIntervalMillis;
+	// switches without an entry have a closed circuit and no recent failures
+	private final Map<String, Circuit> circuits = new ConcurrentHashMap<String, Circuit>();
+	private final ScheduledExecutorService prober;
+
+	/**
+	 * 
+	 * @param failureThreshold    the number of consecutive failed calls that open
+	 *                            the circuit of a switch
+	 * @param probeIntervalMillis the time in ms between two probes of an
+	 *                            unreachable switch
+	 */
+	public SwitchCircuitBreaker(int failureThreshold, long probeIntervalMillis) {
+		if (failureThreshold < 1 || probeIntervalMillis < 1) {
+			throw new IllegalArgumentException("failureThreshold and probeIntervalMillis must be greater than 0");
+		}
+		this.failureThreshold = failureThreshold;
+		this.probeIntervalMillis = probeIntervalMillis;
+		this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "switch-circuit-probe");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Checks if a call to a switch may be sent
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @throws CircuitOpenException If the circuit of the switch is open or
+	 *                              half-open
+	 */
+	public void checkCallPermitted(String switchIdentifier) throws CircuitOpenException {
+		CircuitState state = getState(switchIdentifier);
+		if (state != CircuitState.CLOSED) {
+			throw new CircuitOpenException(
+					"Switch " + switchIdentifier + " is unreachable, waiting for it to answer again");
+		}
+	}
+
+	/**
+	 * Notes a call that was answered by the switch and closes its circuit
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 */
+	public void recordSuccess(String switchIdentifier) {
+		circuits.remove(switchIdentifier);
+	}
+
+	/**
+	 * Notes a call that wasn´t answered by the switch. The circuit is opened once
+	 * the failure threshold is reached.
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @param probe            sends a cheap request to the switch, used to detect
+	 *                         when the switch is reachable again
+	 */
+	public void recordFailure(String switchIdentifier, Supplier<CompletableFuture<?>> probe) {
+		Circuit circuit = circuits.computeIfAbsent(switchIdentifier, id -> new Circuit());
+		synchronized (circuit) {
+			circuit.consecutiveFailures++;
+			if (circuit.state == CircuitState.CLOSED && circuit.consecutiveFailures >= failureThreshold) {
+				circuit.probe = probe;
+				open(switchIdentifier, circuit);
+			}
+		}
+	}
+
+	/**
+	 * Returns the state of the circuit of a switch
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 * @return the state of the circuit
+	 */
+	public CircuitState getState(String switchIdentifier) {
+		Circuit circuit = circuits.get(switchIdentifier);
+		if (circuit == null) {
+			return CircuitState.CLOSED;
+		}
+		synchronized (circuit) {
+			return circuit.state;
+		}
+	}
+
+	/**
+	 * Forgets the circuit of a switch, for example after the switch was removed
+	 * or its credentials changed
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 */
+	public void reset(String switchIdentifier) {
+		circuits.remove(switchIdentifier);
+	}
+
+	// must be called while holding the monitor of the circuit
+	private void open(String switchIdentifier, Circuit circuit) {
+		if (circuit.state == CircuitState.CLOSED) {
+			logger.warn("Switch " + switchIdentifier + " is unreachable, opening its circuit");
+		}
+		circuit.state = CircuitState.OPEN;
+		prober.schedule(() -> probe(switchIdentifier, circuit), probeIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void probe(String switchIdentifier, Circuit circuit) {
+		synchronized (circuit) {
+			// the circuit was closed or reset in the meantime
+			if (circuits.get(switchIdentifier) != circuit || circuit.state != CircuitState.OPEN) {
+				return;
+			}
+			circuit.state = CircuitState.HALF_OPEN;
+		}
+
+		CompletableFuture<?> answer;
+		try {
+			answer = circuit.probe.get();
+		} catch (RuntimeException e) {
+			answer = CompletableFuture.failedFuture(e);
+		}
+		answer.whenComplete((result, error) -> {
+			Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+					: error;
+			if (cause == null || cause instanceof PDUErrorException) {
+				if (circuits.remove(switchIdentifier, circuit)) {
+					logger.info("Switch " + switchIdentifier + " is reachable again, closing its circuit");
+				}
+			} else {
+				synchronized (circuit) {
+					if (circuits.get(switchIdentifier) == circuit) {
+						open(switchIdentifier, circuit);
+					}
+				}
+			}
+		});
+	}
+
+	// the failure count, state and probe of one switch
+	private static class Circuit {
+
+		private CircuitState state = CircuitState.CLOSED;
+		private int consecutiveFailures = 0;
+		private Supplier<CompletableFuture<?>> probe;
+	}
+}
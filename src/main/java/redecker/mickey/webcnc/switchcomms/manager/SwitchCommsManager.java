@@ -3,23 +3,38 @@ package redecker.mickey.webcnc.switchcomms.manager;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import redecker.mickey.webcnc.switchcomms.talker.IAsyncSwitchCommsCommunicator;
 import redecker.mickey.webcnc.switchcomms.talker.ISwitchCommsCommunicator;
 import redecker.mickey.webcnc.switchcomms.talker.SNMPSwitchCommsCommunicator;
 import redecker.mickey.webcnc.types.GCLEntry;
 import redecker.mickey.webcnc.types.LLDPDataTuple;
 import redecker.mickey.webcnc.types.PTPTimeTuple;
 import redecker.mickey.webcnc.types.Port;
+import redecker.mickey.webcnc.types.QbvChangeIndicatorsTuple;
+import redecker.mickey.webcnc.types.QbvParametersTuple;
 import redecker.mickey.webcnc.types.Switch;
 import redecker.mickey.webcnc.types.SwitchInfo;
 import redecker.mickey.webcnc.types.enums.AuthAlgorithm;
 import redecker.mickey.webcnc.types.enums.EncryptionAlgorithm;
 import redecker.mickey.webcnc.types.exceptions.CommsException;
+import redecker.mickey.webcnc.types.exceptions.PDUErrorException;
+import redecker.mickey.webcnc.types.exceptions.PDUNullException;
 
 /**
  * This class provides high-level operations on switches via SNMP
@@ -28,15 +43,44 @@ import redecker.mickey.webcnc.types.exceptions.CommsException;
  * get values from a switch via SNMPv3
  * 
  * It orchestrates the low-level calls to achieve the desired high-level
- * operation and ensures thread safety via a monitor
+ * operation and ensures thread safety via a lock for every switch, so
+ * operations on one switch are serialized while operations on different
+ * switches run in parallel
+ * 
+ * Calls to switches that didn´t answer recently are rejected by a circuit
+ * breaker without contacting the switch
+ * 
+ * Updates of known switches only read the gate control lists and LLDP data
+ * that changed since the last update
  * 
  * @author Mickey Redecker
  *
  */
 public class SwitchCommsManager implements ISwitchCommsManager {
 
+	private static final Logger logger = LogManager.getLogger(SwitchCommsManager.class);
+
+	private static final int CIRCUIT_FAILURE_THRESHOLD = 2; // failed calls in a row until a switch is unreachable
+	private static final long CIRCUIT_PROBE_INTERVAL = 30000; // ms between probes of an unreachable switch
+
+	private final SwitchLocks switchLocks = new SwitchLocks();
+	private final SwitchChangeTracker changeTracker = new SwitchChangeTracker();
+	private final SwitchCircuitBreaker circuitBreaker = new SwitchCircuitBreaker(CIRCUIT_FAILURE_THRESHOLD,
+			CIRCUIT_PROBE_INTERVAL);
+
 	@Override
-	public synchronized Switch getNewSwitchInformation(SwitchInfo switchInfo) throws CommsException {
+	public Switch getNewSwitchInformation(SwitchInfo switchInfo) throws CommsException {
+		String identifier = switchInfo.getSwitchIdentifier();
+		switchLocks.lock(identifier);
+		try {
+			return getNewSwitchInformationLocked(switchInfo);
+		} finally {
+			switchLocks.unlock(identifier);
+		}
+	}
+
+	// must be called while holding the lock of the switch
+	private Switch getNewSwitchInformationLocked(SwitchInfo switchInfo) throws CommsException {
 
 		// retrieve data from switchInfo
 		String identifier = switchInfo.getSwitchIdentifier();
@@ -88,76 +132,87 @@ public class SwitchCommsManager implements ISwitchCommsManager {
 		Collections.sort(tsnPortNumbers);
 		// all data from switchInfo retrieved
 
-		// use talker to get sysname and lldp data from switch
-
-		ISwitchCommsCommunicator sysNamesTalker = new SNMPSwitchCommsCommunicator(address, port, 1, authUserName,
-				authAlgorithm, authPassword, encryptAlgorithm, encryptPassword);
-		String sysName = sysNamesTalker.getSysname();
-		List<LLDPDataTuple> lldpRemData = sysNamesTalker.getLLDPRemData();
-		Collections.sort(lldpRemData, new Comparator<LLDPDataTuple>() {
-            @Override
-            public int compare(LLDPDataTuple data1, LLDPDataTuple data2) {
-                return Integer.compare(data1.localPortNumber, data2.localPortNumber);
-            }
-        });
-		List<String> lldpRemSysNames = new LinkedList<String>();
-		List<String> lldpRemPortIds = new LinkedList<String>();
-		List<Integer> lldpRemLocalPortNumbers = new LinkedList<Integer>();
-		for (LLDPDataTuple data : lldpRemData) {
-			lldpRemSysNames.add(data.remSysName);
-			lldpRemPortIds.add(data.remPortId);
-			lldpRemLocalPortNumbers.add(data.localPortNumber);
+		circuitBreaker.checkCallPermitted(identifier);
+		try {
+			// read sysname, lldp data and TSN information of all ports concurrently
+			Switch newSwitch = retrieveSwitch(identifier, address, port, authUserName, authAlgorithm, authPassword,
+					encryptAlgorithm, encryptPassword, tsnPortNumbers, new HashMap<Integer, Long>());
+			circuitBreaker.recordSuccess(identifier);
+			return newSwitch;
+		} catch (PDUErrorException e) {
+			// the switch answered, only the request was refused
+			circuitBreaker.recordSuccess(identifier);
+			throw e;
+		} catch (CommsException e) {
+			circuitBreaker.recordFailure(identifier, makeProbe(address, port, authUserName, authAlgorithm,
+					authPassword, encryptAlgorithm, encryptPassword));
+			throw e;
 		}
 
-		// for each port of the switch, use talker to retrieve TSN information
-		List<Port> TSNPorts = new LinkedList<Port>();
-		for (Integer tsnPortNumber : tsnPortNumbers) {
-			ISwitchCommsCommunicator tsnTalker = new SNMPSwitchCommsCommunicator(address, port, tsnPortNumber, authUserName,
-					authAlgorithm, authPassword, encryptAlgorithm, encryptPassword);
-
-			Long cycleTimeNumerator = tsnTalker.getOperCycleTimeNumerator();
-			Long cycleTimeDenominator = tsnTalker.getOperCycleTimeDenominator();
-			Long cycleTimeNumeratorNS = cycleTimeNumerator * 1000000000;
-			Long cycleTime;
-			if (cycleTimeDenominator == 0L) {
-				cycleTime = 0L;
-			} else {
-				cycleTime = cycleTimeNumeratorNS / cycleTimeDenominator;
-			}
-
-			Long cycleTimeExtension = tsnTalker.getOperCycleTimeExtension();
+	}
 
-			PTPTimeTuple timeTuple = tsnTalker.getOperBaseTime();
-			boolean gateEnabled = tsnTalker.getGateEnabled();
-			Long ptpSeconds = timeTuple.seconds;
-			Long nanoseconds = timeTuple.nanoseconds;
+	@Override
+	public Switch getUpdatedSwitch(Switch oldSwitch) throws CommsException {
+		String identifier = oldSwitch.getSwitchIdentifier();
+		switchLocks.lock(identifier);
+		try {
+			return getUpdatedSwitchLocked(oldSwitch);
+		} finally {
+			switchLocks.unlock(identifier);
+		}
+	}
 
-			// convert ptpSeconds to year/month/day/hour/minute/second
-			Instant instant = Instant.ofEpochSecond(ptpSeconds);
-			LocalDateTime dateTime = LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
-			Integer year = dateTime.getYear();
-			Integer month = dateTime.getMonthValue();
-			Integer day = dateTime.getDayOfMonth();
-			Integer hour = dateTime.getHour();
-			Integer minute = dateTime.getMinute();
-			Integer second = dateTime.getSecond();
+	// must be called while holding the lock of the switch
+	private Switch getUpdatedSwitchLocked(Switch oldSwitch) throws CommsException {
 
-			List<GCLEntry> gateControlList = tsnTalker.getOperControlList();
+		// retrieve data from oldSwitch
+		String identifier = oldSwitch.getSwitchIdentifier();
+		String address = oldSwitch.getAddress();
+		Integer port = oldSwitch.getPort();
+		String authUserName = oldSwitch.getAuthUserName();
+		AuthAlgorithm authAlgorithm = oldSwitch.getAuthAlgorithm();
+		String authPassword = oldSwitch.getAuthPassword();
+		EncryptionAlgorithm encryptAlgorithm = oldSwitch.getEncryptAlgorithm();
+		String encryptPassword = oldSwitch.getEncryptPassword();
+		List<Port> oldTSNPorts = oldSwitch.getTsnPorts();
+		// all data from switchInfo retrieved
 
-			Port newPort = new Port(tsnPortNumber, identifier, cycleTime, cycleTimeExtension, year, month, day, hour,
-					minute, second, nanoseconds, gateControlList, gateEnabled);
-			TSNPorts.add(newPort);
+		circuitBreaker.checkCallPermitted(identifier);
+		try {
+			List<Integer> tsnPortNumbers = new LinkedList<Integer>();
+			for (Port oldTSNPort : oldTSNPorts) {
+				tsnPortNumbers.add(oldTSNPort.getPortNumber());
+			}
+			// read only the TSN information and lldp data that changed since the last refresh
+			Switch newSwitch = retrieveChangedSwitch(identifier, address, port, authUserName, authAlgorithm,
+					authPassword, encryptAlgorithm, encryptPassword, tsnPortNumbers,
+					getControlListLengths(oldTSNPorts));
+			circuitBreaker.recordSuccess(identifier);
+			return newSwitch;
+		} catch (PDUErrorException e) {
+			// the switch answered, only the request was refused
+			circuitBreaker.recordSuccess(identifier);
+			throw e;
+		} catch (CommsException e) {
+			circuitBreaker.recordFailure(identifier, makeProbe(address, port, authUserName, authAlgorithm,
+					authPassword, encryptAlgorithm, encryptPassword));
+			throw e;
 		}
-
-		Switch newSwitch = new Switch(identifier, address, port, sysName, lldpRemSysNames, lldpRemPortIds,
-				lldpRemLocalPortNumbers, authUserName, authAlgorithm, authPassword, encryptAlgorithm, encryptPassword,
-				TSNPorts, true);
-		return newSwitch;
-
 	}
 
 	@Override
-	public synchronized Switch getUpdatedSwitch(Switch oldSwitch) throws CommsException {
+	public Switch getUpdatedPorts(Switch oldSwitch, Collection<Integer> portNumbers) throws CommsException {
+		String identifier = oldSwitch.getSwitchIdentifier();
+		switchLocks.lock(identifier);
+		try {
+			return getUpdatedPortsLocked(oldSwitch, portNumbers);
+		} finally {
+			switchLocks.unlock(identifier);
+		}
+	}
+
+	// must be called while holding the lock of the switch
+	private Switch getUpdatedPortsLocked(Switch oldSwitch, Collection<Integer> portNumbers) throws CommsException {
 
 		// retrieve data from oldSwitch
 		String identifier = oldSwitch.getSwitchIdentifier();
@@ -171,77 +226,70 @@ public class SwitchCommsManager implements ISwitchCommsManager {
 		List<Port> oldTSNPorts = oldSwitch.getTsnPorts();
 		// all data from switchInfo retrieved
 
-		// use talker to get sysname and lldp data from switch
-		ISwitchCommsCommunicator sysNamesTalker = new SNMPSwitchCommsCommunicator(address, port, 1, authUserName,
-				authAlgorithm, authPassword, encryptAlgorithm, encryptPassword);
-		String sysName = sysNamesTalker.getSysname();
-		List<LLDPDataTuple> lldpRemData = sysNamesTalker.getLLDPRemData();
-		Collections.sort(lldpRemData, new Comparator<LLDPDataTuple>() {
-            @Override
-            public int compare(LLDPDataTuple data1, LLDPDataTuple data2) {
-                return Integer.compare(data1.localPortNumber, data2.localPortNumber);
-            }
-        });
-		List<String> lldpRemSysNames = new LinkedList<String>();
-		List<String> lldpRemPortIds = new LinkedList<String>();
-		List<Integer> lldpRemLocalPortNumbers = new LinkedList<Integer>();
-		for (LLDPDataTuple data : lldpRemData) {
-			lldpRemSysNames.add(data.remSysName);
-			lldpRemPortIds.add(data.remPortId);
-			lldpRemLocalPortNumbers.add(data.localPortNumber);
+		List<Integer> tsnPortNumbers = new LinkedList<Integer>();
+		for (Port oldTSNPort : oldTSNPorts) {
+			if (portNumbers.contains(oldTSNPort.getPortNumber())) {
+				tsnPortNumbers.add(oldTSNPort.getPortNumber());
+			}
+		}
+		if (tsnPortNumbers.isEmpty()) {
+			return oldSwitch;
 		}
 
-		// for each port of the switch, use talker to retrieve TSN information
-		List<Port> newTSNPorts = new LinkedList<Port>();
-		for (Port oldTSNPort : oldTSNPorts) {
-			Integer tsnPortNumber = oldTSNPort.getPortNumber();
-			ISwitchCommsCommunicator tsnTalker = new SNMPSwitchCommsCommunicator(address, port, tsnPortNumber, authUserName,
+		// the ports are read without their change indicators
+		changeTracker.forgetPorts(identifier, tsnPortNumbers);
+		circuitBreaker.checkCallPermitted(identifier);
+		List<QbvParametersTuple> updatedParameters;
+		try {
+			// retrieve TSN information of the ports with as few requests as possible
+			ISwitchCommsCommunicator tsnTalker = new SNMPSwitchCommsCommunicator(address, port, 1, authUserName,
 					authAlgorithm, authPassword, encryptAlgorithm, encryptPassword);
+			updatedParameters = tsnTalker.getOperParameters(tsnPortNumbers, getControlListLengths(oldTSNPorts));
+		} catch (PDUErrorException e) {
+			// the switch answered, only the request was refused
+			circuitBreaker.recordSuccess(identifier);
+			throw e;
+		} catch (CommsException e) {
+			circuitBreaker.recordFailure(identifier, makeProbe(address, port, authUserName, authAlgorithm,
+					authPassword, encryptAlgorithm, encryptPassword));
+			throw e;
+		}
+		circuitBreaker.recordSuccess(identifier);
 
-			Long cycleTimeNumerator = tsnTalker.getOperCycleTimeNumerator();
-			Long cycleTimeDenominator = tsnTalker.getOperCycleTimeDenominator();
-			Long cycleTimeNumeratorNS = cycleTimeNumerator * 1000000000;
-			Long cycleTime;
-			if (cycleTimeDenominator == 0L) {
-				cycleTime = 0L;
-			} else {
-				cycleTime = cycleTimeNumeratorNS / cycleTimeDenominator;
+		// replace the updated ports and keep the order of the ports
+		List<Port> newTSNPorts = new LinkedList<Port>();
+		for (Port oldTSNPort : oldTSNPorts) {
+			Port newPort = oldTSNPort;
+			for (QbvParametersTuple parameters : updatedParameters) {
+				if (parameters.portNumber.equals(oldTSNPort.getPortNumber())) {
+					newPort = makePort(identifier, parameters.portNumber, parameters);
+				}
 			}
-
-			Long cycleTimeExtension = tsnTalker.getOperCycleTimeExtension();
-
-			PTPTimeTuple timeTuple = tsnTalker.getOperBaseTime();
-			boolean gateEnabled = tsnTalker.getGateEnabled();
-			Long ptpSeconds = timeTuple.seconds;
-			Long nanoseconds = timeTuple.nanoseconds;
-
-			// convert ptpSeconds to year/month/day/hour/minute/second
-			Instant instant = Instant.ofEpochSecond(ptpSeconds);
-			LocalDateTime dateTime = LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
-			Integer year = dateTime.getYear();
-			Integer month = dateTime.getMonthValue();
-			Integer day = dateTime.getDayOfMonth();
-			Integer hour = dateTime.getHour();
-			Integer minute = dateTime.getMinute();
-			Integer second = dateTime.getSecond();
-
-			List<GCLEntry> gateControlList = tsnTalker.getOperControlList();
-
-			Port newPort = new Port(tsnPortNumber, identifier, cycleTime, cycleTimeExtension, year, month, day, hour,
-					minute, second, nanoseconds, gateControlList, gateEnabled);
 			newTSNPorts.add(newPort);
 		}
 
-		Switch newSwitch = new Switch(identifier, address, port, sysName, lldpRemSysNames, lldpRemPortIds,
-				lldpRemLocalPortNumbers, authUserName, authAlgorithm, authPassword, encryptAlgorithm, encryptPassword,
-				newTSNPorts, true);
+		Switch newSwitch = oldSwitch.makeDeepCopy();
+		newSwitch.setTsnPorts(newTSNPorts);
+		newSwitch.setReachable(true);
 		return newSwitch;
 	}
 
 	@Override
-	public synchronized void setPortParameters(Port newPort, Switch oldSwitch) throws CommsException {
+	public void setPortParameters(Port newPort, Switch oldSwitch) throws CommsException {
+		String identifier = oldSwitch.getSwitchIdentifier();
+		switchLocks.lock(identifier);
+		try {
+			setPortParametersLocked(newPort, oldSwitch);
+		} finally {
+			switchLocks.unlock(identifier);
+		}
+	}
+
+	// must be called while holding the lock of the switch
+	private void setPortParametersLocked(Port newPort, Switch oldSwitch) throws CommsException {
 
 		// retrieve data from oldSwitch
+		String identifier = oldSwitch.getSwitchIdentifier();
 		String address = oldSwitch.getAddress();
 		Integer port = oldSwitch.getPort();
 		String authUserName = oldSwitch.getAuthUserName();
@@ -267,21 +315,337 @@ public class SwitchCommsManager implements ISwitchCommsManager {
 		Instant instant = dateTime.toInstant(ZoneOffset.UTC);
 		Long ptpSeconds = instant.getEpochSecond();
 
-		// set AdminBaseTime
 		PTPTimeTuple newPTPTime = new PTPTimeTuple();
 		newPTPTime.seconds = ptpSeconds;
 		newPTPTime.nanoseconds = nanosecond;
-		tsnTalker.setAdminBaseTime(newPTPTime);
 
-		// set other tsn parameters
-		tsnTalker.setAdminControlListLength(newPort.getGateControlList());
-		tsnTalker.setAdminControlList(newPort.getGateControlList());
-		tsnTalker.setAdminCycleTimeDenominator(1000000000L); // use cycle time value as nanoseconds
-		tsnTalker.setAdminCycleTimeNumerator(newPort.getCycleTime());
-		tsnTalker.setAdminCycleTimeExtension(newPort.getCycleTimeExtension());
-		tsnTalker.setGateEnabled(newPort.getGateEnabled());
-		tsnTalker.setConfigChange();
+		// set all tsn parameters and apply them with a single request
+		QbvParametersTuple parameters = new QbvParametersTuple();
+		parameters.portNumber = newPort.getPortNumber();
+		parameters.gateEnabled = newPort.getGateEnabled();
+		parameters.cycleTimeNumerator = newPort.getCycleTime();
+		parameters.cycleTimeDenominator = 1000000000L; // use cycle time value as nanoseconds
+		parameters.cycleTimeExtension = newPort.getCycleTimeExtension();
+		parameters.baseTime = newPTPTime;
+		parameters.controlList = newPort.getGateControlList();
+		changeTracker.forgetPorts(identifier, Collections.singletonList(newPort.getPortNumber()));
+		circuitBreaker.checkCallPermitted(identifier);
+		try {
+			tsnTalker.setAdminParameters(parameters);
+		} catch (PDUErrorException e) {
+			// the switch answered, only the request was refused
+			circuitBreaker.recordSuccess(identifier);
+			throw e;
+		} catch (CommsException e) {
+			circuitBreaker.recordFailure(identifier, makeProbe(address, port, authUserName, authAlgorithm,
+					authPassword, encryptAlgorithm, encryptPassword));
+			throw e;
+		}
+		circuitBreaker.recordSuccess(identifier);
+
+	}
+
+	@Override
+	public void forgetSwitch(String switchIdentifier) {
+		circuitBreaker.reset(switchIdentifier);
+		changeTracker.forgetSwitch(switchIdentifier);
+	}
+
+	@Override
+	public void resetReachability(String switchIdentifier) {
+		circuitBreaker.reset(switchIdentifier);
+	}
+
+	@Override
+	public void runLocked(String switchIdentifier, Runnable action) {
+		switchLocks.lock(switchIdentifier);
+		try {
+			action.run();
+		} finally {
+			switchLocks.unlock(switchIdentifier);
+		}
+	}
+
+	/**
+	 * Reads the sysName, the LLDP remote data and the operational Qbv parameters
+	 * of the TSN ports of a switch and combines them into a Switch
+	 * 
+	 * The three reads are sent at the same time, the ports are packed into as few
+	 * requests as possible. The request window of the switch limits how many of
+	 * these requests are in flight at once, so a switch with many ports answers
+	 * in about the time of its slowest read instead of the sum of all reads.
+	 * 
+	 * @param controlListLengths the known lengths of the gate control lists, used
+	 *                           to pack the ports into requests
+	 * @return the reachable Switch with the retrieved data
+	 * @throws CommsException If any of the reads fails, after all reads finished
+	 */
+	private Switch retrieveSwitch(String identifier, String address, Integer port, String authUserName,
+			AuthAlgorithm authAlgorithm, String authPassword, EncryptionAlgorithm encryptAlgorithm,
+			String encryptPassword, List<Integer> tsnPortNumbers, Map<Integer, Long> controlListLengths)
+			throws CommsException {
+
+		IAsyncSwitchCommsCommunicator switchTalker = new SNMPSwitchCommsCommunicator(address, port, 1, authUserName,
+				authAlgorithm, authPassword, encryptAlgorithm, encryptPassword);
+		CompletableFuture<String> sysNameFuture = switchTalker.getSysnameAsync();
+		CompletableFuture<List<LLDPDataTuple>> lldpRemDataFuture = switchTalker.getLLDPRemDataAsync();
+		CompletableFuture<List<QbvParametersTuple>> operParametersFuture = switchTalker
+				.getOperParametersAsync(tsnPortNumbers, controlListLengths);
+		// wait for all reads, so none of them outlives the lock of the switch
+		await(CompletableFuture.allOf(sysNameFuture, lldpRemDataFuture, operParametersFuture));
+
+		List<Port> TSNPorts = new LinkedList<Port>();
+		for (QbvParametersTuple parameters : operParametersFuture.join()) {
+			Port newPort = makePort(identifier, parameters.portNumber, parameters);
+			TSNPorts.add(newPort);
+		}
+
+		return makeSwitch(identifier, address, port, authUserName, authAlgorithm, authPassword, encryptAlgorithm,
+				encryptPassword, sysNameFuture.join(), lldpRemDataFuture.join(), TSNPorts);
+	}
+
+	/**
+	 * Reads only the data of a switch that changed since its last refresh and
+	 * combines it with the recorded data into a Switch
+	 * 
+	 * First the sysName, the last change time of the LLDP remote table and the
+	 * change indicators of the TSN ports (gateEnabled, configChangeTime,
+	 * configPending and operControlListLength) are read, which fit into a few
+	 * small requests. Then the operational Qbv parameters and gate control lists
+	 * are read only for the ports whose indicators moved, and the LLDP remote
+	 * table is only walked if it changed. Ports and LLDP data that weren´t
+	 * recorded yet count as changed, so the first refresh reads everything. The
+	 * recorded data of the unchanged ports is taken before the reads, so a switch
+	 * forgotten in the meantime is still refreshed completely.
+	 * 
+	 * Switches that don´t provide the change indicators are read completely, and
+	 * later refreshes don´t ask them for the indicators again until the switch is
+	 * forgotten.
+	 * 
+	 * @param knownControlListLengths the lengths of the gate control lists of the
+	 *                                last refresh, used to pack the ports of a
+	 *                                complete read into requests
+	 * @return the reachable Switch with the retrieved data
+	 * @throws CommsException If any of the reads fails, after all reads finished
+	 */
+	private Switch retrieveChangedSwitch(String identifier, String address, Integer port, String authUserName,
+			AuthAlgorithm authAlgorithm, String authPassword, EncryptionAlgorithm encryptAlgorithm,
+			String encryptPassword, List<Integer> tsnPortNumbers, Map<Integer, Long> knownControlListLengths)
+			throws CommsException {
+
+		// a switch that refused the indicators once isn´t asked for them again
+		if (!changeTracker.areIndicatorsSupported(identifier)) {
+			return retrieveSwitch(identifier, address, port, authUserName, authAlgorithm, authPassword,
+					encryptAlgorithm, encryptPassword, tsnPortNumbers, knownControlListLengths);
+		}
+
+		IAsyncSwitchCommsCommunicator switchTalker = new SNMPSwitchCommsCommunicator(address, port, 1, authUserName,
+				authAlgorithm, authPassword, encryptAlgorithm, encryptPassword);
+		CompletableFuture<String> sysNameFuture = switchTalker.getSysnameAsync();
+		CompletableFuture<Long> lldpLastChangeFuture = switchTalker.getLLDPRemTablesLastChangeAsync();
+		CompletableFuture<List<QbvChangeIndicatorsTuple>> indicatorsFuture = switchTalker
+				.getQbvChangeIndicatorsAsync(tsnPortNumbers);
+		try {
+			await(CompletableFuture.allOf(sysNameFuture, lldpLastChangeFuture, indicatorsFuture));
+		} catch (PDUErrorException e) {
+			logger.debug("Switch " + identifier + " doesn´t provide change indicators, reading all data | "
+					+ e.getMessage());
+			changeTracker.forgetSwitch(identifier);
+			changeTracker.recordIndicatorsUnsupported(identifier);
+			return retrieveSwitch(identifier, address, port, authUserName, authAlgorithm, authPassword,
+					encryptAlgorithm, encryptPassword, tsnPortNumbers, knownControlListLengths);
+		}
+
+		// the indicators are read before the data, so a change in between is seen
+		// on the next refresh
+		List<QbvChangeIndicatorsTuple> indicators = indicatorsFuture.join();
+		List<Integer> changedPortNumbers = changeTracker.getChangedPorts(identifier, indicators);
+		Long lldpLastChange = lldpLastChangeFuture.join();
+		boolean lldpRemDataChanged = changeTracker.hasLLDPRemDataChanged(identifier, lldpLastChange);
+
+		// the recorded data may be forgotten at any time, data that is gone counts as
+		// changed
+		Map<Integer, Port> ports = new HashMap<Integer, Port>();
+		for (QbvChangeIndicatorsTuple portIndicators : indicators) {
+			if (!changedPortNumbers.contains(portIndicators.portNumber)) {
+				Port knownPort = changeTracker.getKnownPort(identifier, portIndicators.portNumber);
+				if (knownPort != null) {
+					ports.put(portIndicators.portNumber, knownPort);
+				} else {
+					changedPortNumbers.add(portIndicators.portNumber);
+				}
+			}
+		}
+		List<LLDPDataTuple> knownLLDPRemData = null;
+		if (!lldpRemDataChanged) {
+			knownLLDPRemData = changeTracker.getKnownLLDPRemData(identifier);
+			lldpRemDataChanged = knownLLDPRemData == null;
+		}
+
+		CompletableFuture<List<QbvParametersTuple>> operParametersFuture;
+		if (changedPortNumbers.isEmpty()) {
+			operParametersFuture = CompletableFuture.completedFuture(new LinkedList<QbvParametersTuple>());
+		} else {
+			// the indicators tell the current length of the changed gate control lists
+			Map<Integer, Long> controlListLengths = new HashMap<Integer, Long>();
+			for (QbvChangeIndicatorsTuple portIndicators : indicators) {
+				controlListLengths.put(portIndicators.portNumber, portIndicators.operControlListLength);
+			}
+			operParametersFuture = switchTalker.getOperParametersAsync(changedPortNumbers, controlListLengths);
+		}
+		CompletableFuture<List<LLDPDataTuple>> lldpRemDataFuture;
+		if (lldpRemDataChanged) {
+			lldpRemDataFuture = switchTalker.getLLDPRemDataAsync();
+		} else {
+			lldpRemDataFuture = CompletableFuture.completedFuture(knownLLDPRemData);
+		}
+		await(CompletableFuture.allOf(operParametersFuture, lldpRemDataFuture));
+
+		// record the changed data with the indicators read before it
+		for (QbvParametersTuple parameters : operParametersFuture.join()) {
+			for (QbvChangeIndicatorsTuple portIndicators : indicators) {
+				if (portIndicators.portNumber.equals(parameters.portNumber)) {
+					Port changedPort = makePort(identifier, parameters.portNumber, parameters);
+					changeTracker.recordPort(identifier, portIndicators, changedPort);
+					ports.put(parameters.portNumber, changedPort);
+				}
+			}
+		}
+		if (lldpRemDataChanged) {
+			changeTracker.recordLLDPRemData(identifier, lldpLastChange, lldpRemDataFuture.join());
+		}
+		logger.debug("Switch " + identifier + " refreshed, " + changedPortNumbers.size() + " of "
+				+ tsnPortNumbers.size() + " ports changed" + (lldpRemDataChanged ? ", lldp data changed" : ""));
+
+		List<Port> TSNPorts = new LinkedList<Port>();
+		for (Integer tsnPortNumber : tsnPortNumbers) {
+			// like a complete read, ports the switch didn´t return are left out
+			if (ports.containsKey(tsnPortNumber)) {
+				TSNPorts.add(ports.get(tsnPortNumber));
+			}
+		}
+
+		return makeSwitch(identifier, address, port, authUserName, authAlgorithm, authPassword, encryptAlgorithm,
+				encryptPassword, sysNameFuture.join(), lldpRemDataFuture.join(), TSNPorts);
+	}
+
+	/**
+	 * Combines the data read from a switch into a Switch, the neighbors are
+	 * sorted by their local port number
+	 * 
+	 * @return the reachable Switch
+	 */
+	private Switch makeSwitch(String identifier, String address, Integer port, String authUserName,
+			AuthAlgorithm authAlgorithm, String authPassword, EncryptionAlgorithm encryptAlgorithm,
+			String encryptPassword, String sysName, List<LLDPDataTuple> lldpRemData, List<Port> TSNPorts) {
+
+		List<LLDPDataTuple> sortedLLDPRemData = new LinkedList<LLDPDataTuple>(lldpRemData);
+		Collections.sort(sortedLLDPRemData, new Comparator<LLDPDataTuple>() {
+			@Override
+			public int compare(LLDPDataTuple data1, LLDPDataTuple data2) {
+				return Integer.compare(data1.localPortNumber, data2.localPortNumber);
+			}
+		});
+		List<String> lldpRemSysNames = new LinkedList<String>();
+		List<String> lldpRemPortIds = new LinkedList<String>();
+		List<Integer> lldpRemLocalPortNumbers = new LinkedList<Integer>();
+		for (LLDPDataTuple data : sortedLLDPRemData) {
+			lldpRemSysNames.add(data.remSysName);
+			lldpRemPortIds.add(data.remPortId);
+			lldpRemLocalPortNumbers.add(data.localPortNumber);
+		}
+
+		return new Switch(identifier, address, port, sysName, lldpRemSysNames, lldpRemPortIds,
+				lldpRemLocalPortNumbers, authUserName, authAlgorithm, authPassword, encryptAlgorithm, encryptPassword,
+				TSNPorts, true);
+	}
+
+	// the lengths of the gate control lists of the ports by their port number
+	private static Map<Integer, Long> getControlListLengths(List<Port> ports) {
+		Map<Integer, Long> controlListLengths = new HashMap<Integer, Long>();
+		for (Port port : ports) {
+			controlListLengths.put(port.getPortNumber(), (long) port.getGateControlList().size());
+		}
+		return controlListLengths;
+	}
+
+	/**
+	 * Waits for a future of the async communicator. The wait can be interrupted,
+	 * for example when a switch missed its deadline, the requests are dropped
+	 * once they time out.
+	 * 
+	 * @return the result of the future
+	 * @throws CommsException If the future completed with a CommsException or
+	 *                        the waiting thread was interrupted
+	 */
+	private static <T> T await(CompletableFuture<T> future) throws CommsException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PDUNullException("Interrupted while waiting for the switch");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof CommsException) {
+				throw (CommsException) e.getCause();
+			}
+			throw new CompletionException(e.getCause());
+		}
+	}
+
+	/**
+	 * Creates the probe used by the circuit breaker to check if an unreachable
+	 * switch answers again. The probe reads the sysName of the switch.
+	 * 
+	 * @return a supplier that sends the probe to the switch
+	 */
+	private Supplier<CompletableFuture<?>> makeProbe(String address, Integer port, String authUserName,
+			AuthAlgorithm authAlgorithm, String authPassword, EncryptionAlgorithm encryptAlgorithm,
+			String encryptPassword) {
+		return () -> new SNMPSwitchCommsCommunicator(address, port, 1, authUserName, authAlgorithm, authPassword,
+				encryptAlgorithm, encryptPassword).getSysnameAsync();
+	}
+
+	/**
+	 * Converts the operational Qbv parameters read from the switch into a Port
+	 * 
+	 * @param identifier    the identifier of the switch housing the port
+	 * @param tsnPortNumber the number of the port
+	 * @param parameters    the operational Qbv parameters of the port
+	 * @return the Port with human-readable TSN parameters
+	 */
+	private Port makePort(String identifier, Integer tsnPortNumber, QbvParametersTuple parameters) {
+
+		Long cycleTimeNumerator = parameters.cycleTimeNumerator;
+		Long cycleTimeDenominator = parameters.cycleTimeDenominator;
+		Long cycleTimeNumeratorNS = cycleTimeNumerator * 1000000000;
+		Long cycleTime;
+		if (cycleTimeDenominator == 0L) {
+			cycleTime = 0L;
+		} else {
+			cycleTime = cycleTimeNumeratorNS / cycleTimeDenominator;
+		}
+
+		Long cycleTimeExtension = parameters.cycleTimeExtension;
+
+		PTPTimeTuple timeTuple = parameters.baseTime;
+		boolean gateEnabled = parameters.gateEnabled;
+		Long ptpSeconds = timeTuple.seconds;
+		Long nanoseconds = timeTuple.nanoseconds;
+
+		// convert ptpSeconds to year/month/day/hour/minute/second
+		Instant instant = Instant.ofEpochSecond(ptpSeconds);
+		LocalDateTime dateTime = LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+		Integer year = dateTime.getYear();
+		Integer month = dateTime.getMonthValue();
+		Integer day = dateTime.getDayOfMonth();
+		Integer hour = dateTime.getHour();
+		Integer minute = dateTime.getMinute();
+		Integer second = dateTime.getSecond();
+
+		List<GCLEntry> gateControlList = parameters.controlList;
 
+		return new Port(tsnPortNumber, identifier, cycleTime, cycleTimeExtension, year, month, day, hour, minute,
+				second, nanoseconds, gateControlList, gateEnabled);
 	}
 
 }
@@ -0,0 +1,60 @@
+package redecker.mickey.webcnc.switchcomms.manager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class provides a lock for every switch
+ * 
+ * Operations on the same switch are serialized, operations on different
+ * switches don´t wait for each other. A lock only exists while it is held or
+ * waited for, so switches that were removed don´t leave locks behind.
+ * 
+ * The locks are fair, so a waiting operation isn´t overtaken by later ones.
+ * They are reentrant and thread-safe.
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SwitchLocks {
+
+	private final Map<String, SwitchLock> locks = new ConcurrentHashMap<String, SwitchLock>();
+
+	/**
+	 * Waits until the lock of a switch is free and acquires it. Every call has to
+	 * be followed by a call of unlock in a finally block.
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 */
+	public void lock(String switchIdentifier) {
+		SwitchLock lock = locks.compute(switchIdentifier, (identifier, existingLock) -> {
+			SwitchLock usedLock = existingLock != null ? existingLock : new SwitchLock();
+			usedLock.users++;
+			return usedLock;
+		});
+		lock.lock.lock();
+	}
+
+	/**
+	 * Releases the lock of a switch
+	 * 
+	 * @param switchIdentifier the identifier of the switch
+	 */
+	public void unlock(String switchIdentifier) {
+		SwitchLock lock = locks.get(switchIdentifier);
+		if (lock == null || !lock.lock.isHeldByCurrentThread()) {
+			throw new IllegalMonitorStateException("lock of switch " + switchIdentifier + " isn´t held");
+		}
+		lock.lock.unlock();
+		// forget the lock once nobody holds or waits for it anymore
+		locks.computeIfPresent(switchIdentifier, (identifier, usedLock) -> --usedLock.users == 0 ? null : usedLock);
+	}
+
+	// the lock of one switch and the number of threads holding or waiting for it
+	private static class SwitchLock {
+
+		private final ReentrantLock lock = new ReentrantLock(true);
+		private int users = 0; // only changed inside compute of the map
+	}
+}
@@ -0,0 +1,184 @@
+package redecker.mickey.webcnc.switchcomms.notification;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.PDU;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.IpAddress;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+import redecker.mickey.webcnc.netstate.INetworkStateCache;
+import redecker.mickey.webcnc.switchcomms.manager.ISwitchCommsManager;
+import redecker.mickey.webcnc.switchcomms.talker.OIDCatalogue;
+import redecker.mickey.webcnc.switchcredstore.ISwitchCredStore;
+import redecker.mickey.webcnc.types.StaleEntriesTuple;
+import redecker.mickey.webcnc.types.Switch;
+import redecker.mickey.webcnc.types.SwitchInfo;
+import redecker.mickey.webcnc.types.exceptions.CommsException;
+
+/**
+ * This class receives the SNMP traps and informs sent by the switches and
+ * refreshes the affected entries of the netStateCache
+ * 
+ * A notification marks the switches with the source address as stale. linkUp
+ * and linkDown notifications only mark the port given by their ifIndex, all
+ * other notifications (configuration changes, LLDP remote table changes, ...)
+ * mark the whole switch. The ifIndex of a port is assumed to be its port
+ * number, as on all switches used so far.
+ * 
+ * Every stale switch is refreshed once in the background. Notifications
+ * arriving while a refresh is pending are merged into it, notifications
+ * arriving during a refresh mark the switch stale again. Only the stale ports
+ * are read again if possible, the whole switch otherwise. A switch that was
+ * unreachable is read completely with the credentials of the switchCredStore.
+ * 
+ * Only notifications that were authenticated and encrypted by one of the users
+ * of the switches are accepted, others are dropped.
+ * 
+ * A refresh reads the switch and publishes the result while holding the lock
+ * of the switch, so it can´t overwrite data published by a later operation.
+ * 
+ * Informs are acknowledged by SNMP4J before they are passed to the receiver
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SNMPNotificationReceiver implements CommandResponder {
+
+	private static final Logger logger = LogManager.getLogger(SNMPNotificationReceiver.class);
+
+	private static final int REFRESH_THREAD_COUNT = 2; // switches refreshed at the same time
+
+	private final INetworkStateCache netStateCache;
+	private final ISwitchCommsManager switchComms;
+	private final ISwitchCredStore switchCredStore;
+	private final ExecutorService refresher;
+
+	/**
+	 * 
+	 * @param netStateCache   the cache whose entries are refreshed
+	 * @param switchComms     the manager used to read the stale entries again
+	 * @param switchCredStore the store of the credentials used to read
+	 *                        unreachable switches again
+	 */
+	public SNMPNotificationReceiver(INetworkStateCache netStateCache, ISwitchCommsManager switchComms,
+			ISwitchCredStore switchCredStore) {
+		this.netStateCache = netStateCache;
+		this.switchComms = switchComms;
+		this.switchCredStore = switchCredStore;
+		this.refresher = Executors.newFixedThreadPool(REFRESH_THREAD_COUNT, runnable -> {
+			Thread thread = new Thread(runnable, "snmp-notification-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+		PDU pdu = event.getPDU();
+		if (pdu == null || (pdu.getType() != PDU.TRAP && pdu.getType() != PDU.INFORM)) {
+			return;
+		}
+		event.setProcessed(true);
+		if (!(event.getPeerAddress() instanceof IpAddress)) {
+			return;
+		}
+		String address = ((IpAddress) event.getPeerAddress()).getInetAddress().getHostAddress();
+		// unauthenticated notifications could be sent by anyone to trigger refreshes
+		if (event.getSecurityLevel() < SecurityLevel.AUTH_PRIV) {
+			logger.debug("Ignoring SNMP notification from " + address + " with security level "
+					+ event.getSecurityLevel());
+			return;
+		}
+
+		Integer portNumber = getChangedPort(pdu);
+		List<String> identifiers = netStateCache.getSwitchIdentifiersByAddress(address);
+		if (identifiers.isEmpty()) {
+			logger.debug("Ignoring SNMP notification from unknown address " + address);
+			return;
+		}
+		for (String identifier : identifiers) {
+			// a refresh of the switch is only scheduled if none is pending yet
+			if (netStateCache.markStale(identifier, portNumber)) {
+				refresher.execute(() -> refresh(identifier));
+			}
+		}
+	}
+
+	/**
+	 * Stops refreshing switches, pending refreshes are dropped
+	 */
+	public void close() {
+		refresher.shutdownNow();
+	}
+
+	// returns the port of a link notification, or null if the whole switch may have changed
+	private Integer getChangedPort(PDU pdu) {
+		Variable trapOID = pdu.getVariable(OIDCatalogue.snmpTrapOID());
+		if (!OIDCatalogue.linkUp().equals(trapOID) && !OIDCatalogue.linkDown().equals(trapOID)) {
+			return null;
+		}
+		OID ifIndex = OIDCatalogue.ifIndex();
+		for (VariableBinding binding : pdu.getVariableBindings()) {
+			if (binding.getOid().startsWith(ifIndex) && binding.getOid().size() == ifIndex.size() + 1) {
+				return binding.getOid().last();
+			}
+		}
+		return null;
+	}
+
+	private void refresh(String identifier) {
+		StaleEntriesTuple staleEntries = netStateCache.takeStaleEntries(identifier);
+		if (staleEntries == null) {
+			return;
+		}
+		switchComms.runLocked(identifier, () -> refreshLocked(identifier, staleEntries));
+	}
+
+	// must be called while holding the lock of the switch, so the switch isn´t
+	// replaced by another operation between reading and publishing it
+	private void refreshLocked(String identifier, StaleEntriesTuple staleEntries) {
+		Switch oldSwitch = netStateCache.getSwitch(identifier);
+		if (oldSwitch == null) {
+			return;
+		}
+
+		// the switch just sent a notification, so it is reachable
+		switchComms.resetReachability(identifier);
+		try {
+			Switch newSwitch;
+			if (!oldSwitch.isReachable()) {
+				newSwitch = getNewSwitch(identifier);
+			} else if (staleEntries.switchStale) {
+				newSwitch = switchComms.getUpdatedSwitch(oldSwitch);
+			} else {
+				newSwitch = switchComms.getUpdatedPorts(oldSwitch, staleEntries.stalePortNumbers);
+			}
+			if (newSwitch != null) {
+				netStateCache.replaceSwitch(newSwitch);
+				logger.info("Switch " + identifier + " refreshed after SNMP notification");
+			}
+		} catch (CommsException e) {
+			logger.warn("Couldn´t refresh switch " + identifier + " after SNMP notification, keeping old data");
+		}
+	}
+
+	// reads an unreachable switch completely, returns null if its credentials are unknown
+	private Switch getNewSwitch(String identifier) throws CommsException {
+		for (SwitchInfo switchInfo : switchCredStore.getAllSwitchInfo()) {
+			if (switchInfo.getSwitchIdentifier().equals(identifier)) {
+				return switchComms.getNewSwitchInformation(switchInfo);
+			}
+		}
+		return null;
+	}
+}
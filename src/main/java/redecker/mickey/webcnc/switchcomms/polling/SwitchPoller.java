@@ -0,0 +1,194 @@
+package redecker.mickey.webcnc.switchcomms.polling;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import redecker.mickey.webcnc.netstate.INetworkStateCache;
+import redecker.mickey.webcnc.switchcomms.manager.ISwitchCommsManager;
+import redecker.mickey.webcnc.switchcredstore.ISwitchCredStore;
+import redecker.mickey.webcnc.types.Switch;
+import redecker.mickey.webcnc.types.SwitchInfo;
+import redecker.mickey.webcnc.types.exceptions.CommsException;
+import redecker.mickey.webcnc.types.exceptions.PDUErrorException;
+
+/**
+ * This class refreshes every switch of the netStateCache in the background, so
+ * the cache stays fresh without a reload
+ * 
+ * Every switch is polled once per interval on a schedule of its own. The first
+ * polls of the switches are spread evenly over one interval and every poll is
+ * moved by a random jitter of up to a tenth of the interval, so the switches
+ * aren´t polled in bursts and don´t fall into step again.
+ * 
+ * A reachable switch is updated, so only its changed data is read. A switch
+ * that doesn´t answer is kept with its last data and marked unreachable. An
+ * unreachable switch is read completely with the credentials of the
+ * switchCredStore once it answers again, the circuit breaker of the
+ * switchComms keeps the polls from contacting it until then.
+ * 
+ * A poll reads the switch and publishes the result while holding the lock of
+ * the switch, so it can´t overwrite data published by a later operation.
+ * 
+ * Switches added to the netStateCache are picked up within one interval,
+ * removed switches are no longer polled.
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SwitchPoller {
+
+	private static final Logger logger = LogManager.getLogger(SwitchPoller.class);
+
+	private static final int POLL_THREAD_COUNT = 4; // switches polled at the same time
+	private static final long JITTER_DIVISOR = 10; // the jitter is at most the interval divided by this
+
+	private final INetworkStateCache netStateCache;
+	private final ISwitchCommsManager switchComms;
+	private final ISwitchCredStore switchCredStore;
+	private final long intervalMillis;
+	private final ScheduledExecutorService poller;
+	private final Set<String> polledSwitches = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * 
+	 * @param netStateCache   the cache whose switches are refreshed
+	 * @param switchComms     the manager used to read the switches
+	 * @param switchCredStore the store of the credentials used to read
+	 *                        unreachable switches again
+	 * @param intervalMillis  the time in ms between two polls of a switch
+	 */
+	public SwitchPoller(INetworkStateCache netStateCache, ISwitchCommsManager switchComms,
+			ISwitchCredStore switchCredStore, long intervalMillis) {
+		if (intervalMillis < 1) {
+			throw new IllegalArgumentException("intervalMillis must be greater than 0");
+		}
+		this.netStateCache = netStateCache;
+		this.switchComms = switchComms;
+		this.switchCredStore = switchCredStore;
+		this.intervalMillis = intervalMillis;
+		this.poller = Executors.newScheduledThreadPool(POLL_THREAD_COUNT, runnable -> {
+			Thread thread = new Thread(runnable, "switch-poller");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts polling the switches of the netStateCache
+	 */
+	public void start() {
+		poller.scheduleWithFixedDelay(this::scheduleNewSwitches, 0, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops polling, running polls are abandoned
+	 */
+	public void close() {
+		poller.shutdownNow();
+	}
+
+	// starts polling the switches that were added to the netStateCache since the last call
+	private void scheduleNewSwitches() {
+		try {
+			List<String> newIdentifiers = new LinkedList<String>();
+			for (String identifier : netStateCache.getAllSwitchIdentifiers()) {
+				if (polledSwitches.add(identifier)) {
+					newIdentifiers.add(identifier);
+				}
+			}
+			// the switches were just read, so the first polls are spread over the next interval
+			int position = 1;
+			for (String identifier : newIdentifiers) {
+				schedulePoll(identifier, intervalMillis * position / newIdentifiers.size());
+				position++;
+			}
+			if (!newIdentifiers.isEmpty()) {
+				logger.info("Polling " + newIdentifiers.size() + " new switches every " + intervalMillis + " ms");
+			}
+		} catch (RuntimeException e) {
+			// an exception would cancel the periodic task
+			logger.error("Couldn´t schedule polls of new switches", e);
+		}
+	}
+
+	private void schedulePoll(String identifier, long delayMillis) {
+		long maxJitter = intervalMillis / JITTER_DIVISOR;
+		long jitter = ThreadLocalRandom.current().nextLong(-maxJitter, maxJitter + 1);
+		try {
+			poller.schedule(() -> poll(identifier), Math.max(0, delayMillis + jitter), TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// the poller was closed
+		}
+	}
+
+	private void poll(String identifier) {
+		if (!netStateCache.getAllSwitchIdentifiers().contains(identifier)) {
+			polledSwitches.remove(identifier);
+			logger.debug("Switch " + identifier + " was removed, polling stopped");
+			return;
+		}
+
+		try {
+			switchComms.runLocked(identifier, () -> pollLocked(identifier));
+		} catch (RuntimeException e) {
+			logger.error("Polling switch " + identifier + " failed", e);
+		}
+
+		schedulePoll(identifier, intervalMillis);
+	}
+
+	// must be called while holding the lock of the switch, so the switch isn´t
+	// replaced by another operation between reading and publishing it
+	private void pollLocked(String identifier) {
+		Switch oldSwitch = netStateCache.getSwitch(identifier);
+		if (oldSwitch == null) {
+			// removed in the meantime, the next poll stops polling it
+			return;
+		}
+
+		try {
+			Switch newSwitch;
+			if (oldSwitch.isReachable()) {
+				newSwitch = switchComms.getUpdatedSwitch(oldSwitch);
+			} else {
+				newSwitch = getNewSwitch(identifier);
+			}
+			if (newSwitch != null) {
+				netStateCache.replaceSwitch(newSwitch);
+				logger.debug("Switch " + identifier + " polled");
+			}
+		} catch (PDUErrorException e) {
+			// the switch answered, so its old data is kept as it is
+			logger.warn("Switch " + identifier + " refused the poll, keeping old data");
+		} catch (CommsException e) {
+			if (oldSwitch.isReachable()) {
+				Switch unreachableSwitch = oldSwitch.makeDeepCopy();
+				unreachableSwitch.setReachable(false);
+				netStateCache.replaceSwitch(unreachableSwitch);
+				logger.warn("Switch " + identifier + " didn´t answer the poll, marked as unreachable");
+			}
+		}
+	}
+
+	// reads an unreachable switch completely, returns null if its credentials are unknown
+	private Switch getNewSwitch(String identifier) throws CommsException {
+		for (SwitchInfo switchInfo : switchCredStore.getAllSwitchInfo()) {
+			if (switchInfo.getSwitchIdentifier().equals(identifier)) {
+				Switch newSwitch = switchComms.getNewSwitchInformation(switchInfo);
+				logger.info("Switch " + identifier + " answered the poll, reachable again");
+				return newSwitch;
+			}
+		}
+		return null;
+	}
+}
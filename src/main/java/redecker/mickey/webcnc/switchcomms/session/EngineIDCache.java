@@ -0,0 +1,114 @@
+package redecker.mickey.webcnc.switchcomms.session;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+
+/**
+ * This class caches the authoritative engine IDs of the switches by their UDP
+ * address
+ * 
+ * The engine ID of a switch is discovered once and reused by every following
+ * session, the engine boots and time are kept by the shared USM of the
+ * SNMPDispatcher. An entry is only refreshed after the switch answered with a
+ * notInTimeWindow or unknownEngineID report.
+ * 
+ * Only one discovery per switch runs at a time, concurrent callers wait for
+ * its result. The discovery runs outside of the map, so it doesn´t block the
+ * engine IDs of other switches.
+ * 
+ * The cache is thread-safe
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class EngineIDCache {
+
+	private static final Logger logger = LogManager.getLogger(EngineIDCache.class);
+
+	private final SNMPDispatcher dispatcher;
+	private final Map<UdpAddress, CompletableFuture<OctetString>> engineIDs = new ConcurrentHashMap<UdpAddress, CompletableFuture<OctetString>>();
+
+	/**
+	 * 
+	 * @param dispatcher the SNMP engine used to discover the engine IDs
+	 */
+	public EngineIDCache(SNMPDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+
+	/**
+	 * Returns the engine ID of a switch, discovering it if it is not cached yet
+	 * 
+	 * @param address the UDP address of the switch
+	 * @param timeout the time in ms to wait for the answer of the switch
+	 * @return the engine ID of the switch
+	 * @throws IOException If the switch doesn´t answer the discovery
+	 */
+	public OctetString getEngineID(UdpAddress address, long timeout) throws IOException {
+		CompletableFuture<OctetString> engineID = engineIDs.get(address);
+		if (engineID == null) {
+			CompletableFuture<OctetString> discovery = new CompletableFuture<OctetString>();
+			engineID = engineIDs.putIfAbsent(address, discovery);
+			if (engineID == null) {
+				return discoverEngineID(address, timeout, discovery);
+			}
+		}
+		return await(engineID);
+	}
+
+	/**
+	 * Forgets the engine ID and engine time of a switch, so the next session
+	 * discovers them again
+	 * 
+	 * @param address the UDP address of the switch
+	 */
+	public void invalidate(UdpAddress address) {
+		CompletableFuture<OctetString> engineID = engineIDs.remove(address);
+		// a running discovery only publishes the fresh engine ID to its waiters
+		if (engineID != null && engineID.isDone() && !engineID.isCompletedExceptionally()) {
+			dispatcher.removeEngineID(address, engineID.join());
+			logger.info("Engine ID of " + address + " invalidated");
+		}
+	}
+
+	// discovers the engine ID and hands it to the callers waiting for discovery
+	private OctetString discoverEngineID(UdpAddress address, long timeout, CompletableFuture<OctetString> discovery)
+			throws IOException {
+		try {
+			OctetString engineID = new OctetString(dispatcher.discoverEngineID(address, timeout));
+			dispatcher.addEngineID(address, engineID);
+			logger.debug("Discovered engine ID " + engineID.toHexString() + " of " + address);
+			discovery.complete(engineID);
+			return engineID;
+		} catch (IOException | RuntimeException e) {
+			// the next caller tries again
+			engineIDs.remove(address, discovery);
+			discovery.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	// waits for the discovery of another caller
+	private OctetString await(CompletableFuture<OctetString> engineID) throws IOException {
+		try {
+			return engineID.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the engine ID discovery");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw new IOException(e.getCause().getMessage(), e.getCause());
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+}
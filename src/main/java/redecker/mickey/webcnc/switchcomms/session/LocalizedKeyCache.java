@@ -0,0 +1,120 @@
+package redecker.mickey.webcnc.switchcomms.session;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.snmp4j.security.SecurityProtocols;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+
+/**
+ * This class caches the localized SNMPv3 authentication and privacy keys of
+ * the switches
+ * 
+ * Localizing a password hashes one megabyte of data, so the keys of each
+ * combination of engine ID and credentials are only computed once and reused
+ * for every following session with the switch. Entries of a switch have to be
+ * invalidated when its credentials change.
+ * 
+ * The cache is thread-safe
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class LocalizedKeyCache {
+
+	private final SecurityProtocols securityProtocols;
+	private final Map<CacheKey, LocalizedKeys> keys = new ConcurrentHashMap<CacheKey, LocalizedKeys>();
+
+	/**
+	 * 
+	 * @param securityProtocols the security protocols used to localize the keys
+	 */
+	public LocalizedKeyCache(SecurityProtocols securityProtocols) {
+		this.securityProtocols = securityProtocols;
+	}
+
+	/**
+	 * Returns the localized keys for the credentials of a session, computing them
+	 * if they are not cached yet
+	 * 
+	 * @param engineID     the authoritative engine ID of the switch
+	 * @param sessionKey   the address and credentials of the switch
+	 * @param authProtocol the ID of the authentication protocol
+	 * @param privProtocol the ID of the privacy protocol
+	 * @return the localized authentication and privacy keys
+	 */
+	public LocalizedKeys getKeys(OctetString engineID, SNMPSessionKey sessionKey, OID authProtocol,
+			OID privProtocol) {
+		return keys.computeIfAbsent(new CacheKey(engineID, sessionKey), cacheKey -> {
+			byte[] authKey = securityProtocols.passwordToKey(authProtocol,
+					new OctetString(sessionKey.getAuthPassword()), engineID.getValue());
+			byte[] privKey = securityProtocols.passwordToKey(privProtocol, authProtocol,
+					new OctetString(sessionKey.getEncryptPassword()), engineID.getValue());
+			return new LocalizedKeys(authKey, privKey);
+		});
+	}
+
+	/**
+	 * Removes the keys of all credentials used for a switch
+	 * 
+	 * @param address  the IP address of the switch
+	 * @param snmpPort the SNMP-UDP port of the switch
+	 */
+	public void invalidateSwitch(String address, Integer snmpPort) {
+		keys.keySet().removeIf(cacheKey -> Objects.equals(cacheKey.sessionKey.getAddress(), address)
+				&& Objects.equals(cacheKey.sessionKey.getSnmpPort(), snmpPort));
+	}
+
+	/**
+	 * Returns the number of cached key pairs
+	 * 
+	 * @return number of cached key pairs
+	 */
+	public int size() {
+		return keys.size();
+	}
+
+	/**
+	 * The localized authentication and privacy key of one user on one switch
+	 */
+	public static class LocalizedKeys {
+
+		public final byte[] authKey;
+		public final byte[] privKey;
+
+		LocalizedKeys(byte[] authKey, byte[] privKey) {
+			this.authKey = authKey;
+			this.privKey = privKey;
+		}
+	}
+
+	// keys are localized per engine ID, the credentials are part of the session key
+	private static class CacheKey {
+
+		private final OctetString engineID;
+		private final SNMPSessionKey sessionKey;
+
+		CacheKey(OctetString engineID, SNMPSessionKey sessionKey) {
+			this.engineID = engineID;
+			this.sessionKey = sessionKey;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			} else if (!(other instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey otherKey = (CacheKey) other;
+			return engineID.equals(otherKey.engineID) && sessionKey.equals(otherKey.sessionKey);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(engineID, sessionKey);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package redecker.mickey.webcnc.switchcomms.session;
+
+/**
+ * This class estimates the round-trip time of a switch and derives the timeout
+ * and number of retries of its requests
+ * 
+ * It follows the retransmission timer of TCP (RFC 6298): a smoothed round-trip
+ * time and its variation are updated with every answered request, the timeout
+ * is the smoothed round-trip time plus four times its variation, kept between a
+ * floor and a ceiling
+ * 
+ * The timeout backs off exponentially (RFC 6298, 5.5): it is doubled, up to the
+ * ceiling, by every request that times out completely and by every response
+ * that arrived after a retry. Such responses are not used as samples, since it
+ * is unknown which request was answered, so the doubled timeout is kept until a
+ * clean sample arrives. Every request that times out completely also lowers the
+ * number of retries of the next request, so dead switches are given up on
+ * quickly, until the switch answers again.
+ * 
+ * The estimator is thread-safe
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class RTTEstimator {
+
+	private static final double ALPHA = 0.125; // gain of the smoothed round-trip time
+	private static final double BETA = 0.25; // gain of the round-trip time variation
+	private static final int K = 4; // weight of the variation in the timeout
+
+	private final long floorMillis;
+	private final long ceilingMillis;
+	private final int maxRetries;
+
+	private double smoothedRTT = -1;
+	private double rttVariation;
+	private long timeoutMillis;
+	private int consecutiveTimeouts = 0;
+
+	/**
+	 * 
+	 * @param initialTimeoutMillis the timeout in ms used until the first sample
+	 * @param maxRetries           the number of retries of a responsive switch
+	 * @param floorMillis          the lowest timeout in ms
+	 * @param ceilingMillis        the highest timeout in ms
+	 */
+	public RTTEstimator(long initialTimeoutMillis, int maxRetries, long floorMillis, long ceilingMillis) {
+		if (floorMillis < 1 || ceilingMillis < floorMillis) {
+			throw new IllegalArgumentException("floorMillis must be at least 1 and not greater than ceilingMillis");
+		}
+		this.floorMillis = floorMillis;
+		this.ceilingMillis = ceilingMillis;
+		this.maxRetries = maxRetries;
+		this.timeoutMillis = clamp(initialTimeoutMillis);
+	}
+
+	/**
+	 * Adds the duration of an answered request
+	 * 
+	 * @param durationNanos the time in ns from sending the request until the
+	 *                      response arrived
+	 * @param usedTimeout   the timeout in ms the request was sent with
+	 */
+	public synchronized void addSample(long durationNanos, long usedTimeout) {
+		consecutiveTimeouts = 0;
+		double rttMillis = durationNanos / 1000000.0;
+
+		// the response may belong to a retry, back off until a clean sample arrives
+		if (rttMillis >= usedTimeout) {
+			timeoutMillis = clamp(timeoutMillis * 2);
+			return;
+		}
+
+		if (smoothedRTT < 0) {
+			smoothedRTT = rttMillis;
+			rttVariation = rttMillis / 2;
+		} else {
+			rttVariation = (1 - BETA) * rttVariation + BETA * Math.abs(smoothedRTT - rttMillis);
+			smoothedRTT = (1 - ALPHA) * smoothedRTT + ALPHA * rttMillis;
+		}
+		timeoutMillis = clamp((long) Math.ceil(smoothedRTT + K * rttVariation));
+	}
+
+	/**
+	 * Notes a request that wasn´t answered after all retries and backs off the
+	 * timeout
+	 */
+	public synchronized void addTimeout() {
+		timeoutMillis = clamp(timeoutMillis * 2);
+		if (consecutiveTimeouts < maxRetries) {
+			consecutiveTimeouts++;
+		}
+	}
+
+	/**
+	 * Returns the timeout for the next request
+	 * 
+	 * @return the timeout in ms
+	 */
+	public synchronized long getTimeout() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * Returns the number of retries for the next request
+	 * 
+	 * @return the number of retries
+	 */
+	public synchronized int getRetries() {
+		return maxRetries - consecutiveTimeouts;
+	}
+
+	/**
+	 * Returns the smoothed round-trip time
+	 * 
+	 * @return the smoothed round-trip time in ms, or -1 if there is no sample yet
+	 */
+	public synchronized double getSmoothedRTT() {
+		return smoothedRTT;
+	}
+
+	private long clamp(long timeout) {
+		return Math.max(floorMillis, Math.min(ceilingMillis, timeout));
+	}
+}
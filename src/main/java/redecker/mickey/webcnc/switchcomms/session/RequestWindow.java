@@ -0,0 +1,91 @@
+package redecker.mickey.webcnc.switchcomms.session;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * This class limits the number of outstanding requests to a single switch
+ * 
+ * Up to the window size of requests are sent right away, further requests are
+ * queued and sent in order as soon as an outstanding request is answered or
+ * timed out. Independent requests to one switch can overlap this way without
+ * flooding the SNMP agent of the switch.
+ * 
+ * The window never blocks, so requests may be submitted from the SNMP listener
+ * thread. A queued request is sent by the thread that completes the previous
+ * one, so sending must not block either.
+ * 
+ * The window is thread-safe
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class RequestWindow {
+
+	private final int size;
+	private final Queue<Runnable> waitingRequests = new ArrayDeque<Runnable>();
+	private int outstandingRequests = 0;
+
+	/**
+	 * 
+	 * @param size the maximum number of outstanding requests
+	 */
+	public RequestWindow(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("size must be greater than 0");
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Sends a request as soon as the window has room for it. Every submitted
+	 * request has to call complete() once it was answered or failed.
+	 * 
+	 * @param request sends the request without blocking
+	 */
+	public void submit(Runnable request) {
+		synchronized (this) {
+			if (outstandingRequests >= size) {
+				waitingRequests.add(request);
+				return;
+			}
+			outstandingRequests++;
+		}
+		request.run();
+	}
+
+	/**
+	 * Frees the place of a finished request and sends the next waiting request
+	 */
+	public void complete() {
+		Runnable next;
+		synchronized (this) {
+			next = waitingRequests.poll();
+			if (next == null) {
+				outstandingRequests--;
+			}
+		}
+		// the place of the finished request is handed over to the next one
+		if (next != null) {
+			next.run();
+		}
+	}
+
+	/**
+	 * Returns the number of requests that were sent and not finished yet
+	 * 
+	 * @return number of outstanding requests
+	 */
+	public synchronized int getOutstandingRequests() {
+		return outstandingRequests;
+	}
+
+	/**
+	 * Returns the number of requests waiting for room in the window
+	 * 
+	 * @return number of waiting requests
+	 */
+	public synchronized int getWaitingRequests() {
+		return waitingRequests.size();
+	}
+}
@@ -0,0 +1,190 @@
+package redecker.mickey.webcnc.switchcomms.session;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.MessageDispatcher;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.Snmp;
+import org.snmp4j.TransportMapping;
+import org.snmp4j.mp.CounterSupport;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.security.AuthMD5;
+import org.snmp4j.security.AuthSHA;
+import org.snmp4j.security.PrivAES128;
+import org.snmp4j.security.PrivDES;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.security.SecurityModels;
+import org.snmp4j.security.SecurityProtocols;
+import org.snmp4j.security.SecurityProtocols.SecurityProtocolSet;
+import org.snmp4j.security.USM;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+/**
+ * This class holds the single SNMP engine that talks to all switches
+ * 
+ * It consists of one Snmp instance with one message dispatcher, one USM and a
+ * small fixed number of UDP transports. Every session is bound to one of the
+ * transports in round-robin order, responses are matched to their requests by
+ * the request ID. The number of sockets and listener threads therefore doesn´t
+ * grow with the number of switches.
+ * 
+ * The users of all switches are stored in the shared USM, localized to the
+ * engine ID of their switch, so switches with the same user name but different
+ * passwords don´t overwrite each other
+ * 
+ * The security models and protocols are private to the dispatcher and set up
+ * once. The global SNMP4J singletons are never touched.
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SNMPDispatcher {
+
+	private static final Logger logger = LogManager.getLogger(SNMPDispatcher.class);
+
+	private static final int MAX_ENGINE_ID_CACHE_SIZE = 65536; // engine IDs of all switches stay known to MPv3
+
+	private final Snmp snmp;
+	private final MPv3 mpv3;
+	private final SecurityProtocols securityProtocols;
+	private final List<TransportMapping<UdpAddress>> transports = new LinkedList<TransportMapping<UdpAddress>>();
+	private final AtomicInteger nextTransport = new AtomicInteger(0);
+
+	/**
+	 * Creates the SNMP engine and starts listening on all transports
+	 * 
+	 * @param transportCount the number of UDP transports to open
+	 * @throws IOException If a UDP transport can´t be opened
+	 */
+	public SNMPDispatcher(int transportCount) throws IOException {
+		if (transportCount < 1) {
+			throw new IllegalArgumentException("transportCount must be greater than 0");
+		}
+
+		this.securityProtocols = makeSecurityProtocols();
+		USM usm = new USM(securityProtocols, new OctetString(MPv3.createLocalEngineID()), 0);
+		// the MPv3 gets its own security models and protocols instead of the global
+		// singletons, so no process-wide state is shared or changed
+		this.mpv3 = new MPv3(usm.getLocalEngineID().getValue(), null, securityProtocols,
+				SecurityModels.getCollection(new SecurityModel[] { usm }), CounterSupport.getInstance());
+		mpv3.setMaxEngineIdCacheSize(MAX_ENGINE_ID_CACHE_SIZE);
+		MessageDispatcher dispatcher = new MessageDispatcherImpl();
+		dispatcher.addMessageProcessingModel(mpv3);
+		this.snmp = new Snmp(dispatcher);
+
+		for (int i = 0; i < transportCount; i++) {
+			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
+			snmp.addTransportMapping(transport);
+			transports.add(transport);
+		}
+		snmp.listen();
+		logger.info("SNMP dispatcher listening on " + transportCount + " UDP transports");
+	}
+
+	// getters
+	public Snmp getSnmp() {
+		return snmp;
+	}
+
+	public SecurityProtocols getSecurityProtocols() {
+		return securityProtocols;
+	}
+
+	/**
+	 * Returns the next listening transport in round-robin order. Transports that
+	 * stopped listening are skipped.
+	 * 
+	 * @return a listening UDP transport
+	 * @throws IOException If no transport is listening anymore
+	 */
+	public TransportMapping<UdpAddress> nextTransport() throws IOException {
+		for (int i = 0; i < transports.size(); i++) {
+			int index = Math.floorMod(nextTransport.getAndIncrement(), transports.size());
+			TransportMapping<UdpAddress> transport = transports.get(index);
+			if (transport.isListening()) {
+				return transport;
+			}
+		}
+		throw new IOException("No SNMP transport is listening");
+	}
+
+	/**
+	 * Discovers the authoritative engine ID of a switch
+	 * 
+	 * @param address the UDP address of the switch
+	 * @param timeout the time in ms to wait for the answer of the switch
+	 * @return the engine ID of the switch
+	 * @throws IOException If the switch doesn´t answer the discovery
+	 */
+	public byte[] discoverEngineID(UdpAddress address, long timeout) throws IOException {
+		byte[] engineID = snmp.discoverAuthoritativeEngineID(address, timeout);
+		if (engineID == null) {
+			throw new IOException("Engine ID discovery failed for " + address);
+		}
+		return engineID;
+	}
+
+	/**
+	 * Makes a known engine ID of a switch available to MPv3, so requests to the
+	 * switch don´t need to discover it again
+	 * 
+	 * @param address  the UDP address of the switch
+	 * @param engineID the engine ID of the switch
+	 */
+	public void addEngineID(UdpAddress address, OctetString engineID) {
+		mpv3.addEngineID(address, engineID);
+	}
+
+	/**
+	 * Forgets the engine ID and engine time of a switch, for example after the
+	 * switch rebooted or its engine ID changed
+	 * 
+	 * @param address  the UDP address of the switch
+	 * @param engineID the engine ID of the switch
+	 */
+	public void removeEngineID(UdpAddress address, OctetString engineID) {
+		mpv3.removeEngineID(address);
+		snmp.getUSM().removeEngineTime(engineID);
+	}
+
+	/**
+	 * Opens a UDP transport on the specified port that passes all received traps
+	 * and informs to the responder. Informs are acknowledged by the Snmp instance.
+	 * 
+	 * @param port      the UDP port to listen on
+	 * @param responder receives all traps and informs
+	 * @throws IOException If the port can´t be opened
+	 */
+	public void addNotificationListener(int port, CommandResponder responder) throws IOException {
+		if (!snmp.addNotificationListener(new UdpAddress("0.0.0.0/" + port), responder)) {
+			throw new IOException("Couldn´t listen for notifications on UDP port " + port);
+		}
+		logger.info("SNMP dispatcher listening for notifications on UDP port " + port);
+	}
+
+	/**
+	 * Closes the Snmp instance and all transports
+	 */
+	public void close() throws IOException {
+		snmp.close();
+	}
+
+	private SecurityProtocols makeSecurityProtocols() {
+		// activate all supported authentication and encryption protocols, the switches
+		// may use different ones
+		SecurityProtocols sp = new SecurityProtocols(SecurityProtocolSet.none);
+		sp.addAuthenticationProtocol(new AuthMD5());
+		sp.addAuthenticationProtocol(new AuthSHA());
+		sp.addPrivacyProtocol(new PrivDES());
+		sp.addPrivacyProtocol(new PrivAES128());
+		return sp;
+	}
+}
@@ -0,0 +1,266 @@
+package redecker.mickey.webcnc.switchcomms.session;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.snmp4j.Snmp;
+import org.snmp4j.TransportMapping;
+import org.snmp4j.UserTarget;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.security.AuthMD5;
+import org.snmp4j.security.AuthSHA;
+import org.snmp4j.security.PrivAES128;
+import org.snmp4j.security.PrivDES;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.USM;
+import org.snmp4j.security.UsmUserEntry;
+import org.snmp4j.smi.GenericAddress;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+
+import redecker.mickey.webcnc.setup.WebcncApplication;
+import redecker.mickey.webcnc.types.enums.AuthAlgorithm;
+import redecker.mickey.webcnc.types.enums.EncryptionAlgorithm;
+
+/**
+ * This class represents a persistent SNMPv3 session with a single switch
+ * 
+ * It keeps the discovered engine ID, the localized user and the round-trip
+ * time estimation of the switch alive, so consecutive requests to the same switch don´t have to
+ * repeat the engine discovery and key localization. The requests are sent over
+ * one of the transports of the shared SNMPDispatcher, at most as many at once
+ * as its request window allows.
+ * 
+ * Sessions are created and handed out by the SNMPSessionPool
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SNMPSession {
+
+	// size of a response PDU that safely fits into one unfragmented UDP datagram
+	private static final int DEFAULT_MAX_RESPONSE_PDU_SIZE = 1400;
+	private static final int MIN_MAX_RESPONSE_PDU_SIZE = 484; // minimum message size every SNMP agent must accept
+
+	private final SNMPSessionKey key;
+	private final TransportMapping<UdpAddress> transport;
+	private final Snmp snmp;
+	private final OctetString engineID;
+	private final OctetString userName;
+	private final LocalizedKeyCache.LocalizedKeys keys;
+	private final OctetString localEngineID;
+	private final LocalizedKeyCache.LocalizedKeys localKeys;
+	private final UdpAddress address;
+	private final RTTEstimator rttEstimator;
+	private final RequestWindow requestWindow;
+
+	private final AtomicInteger activeRequests = new AtomicInteger(0);
+	private volatile int maxResponsePDUSize = DEFAULT_MAX_RESPONSE_PDU_SIZE;
+	private volatile boolean bulkSupported = true;
+	private volatile long lastUsedMillis;
+	private volatile boolean closed = false;
+
+	/**
+	 * Opens a new session with the switch described by the key
+	 * 
+	 * @param key        the address and SNMPv3 credentials of the switch
+	 * @param dispatcher    the shared SNMP engine to send the requests with
+	 * @param engineIDCache the cache of the engine IDs of the switches
+	 * @param keyCache      the cache of the localized keys of the switches
+	 * @throws IOException If no transport is listening or the engine ID of the
+	 *                     switch can´t be discovered
+	 */
+	SNMPSession(SNMPSessionKey key, SNMPDispatcher dispatcher, EngineIDCache engineIDCache,
+			LocalizedKeyCache keyCache) throws IOException {
+		this.key = key;
+		this.transport = dispatcher.nextTransport();
+		this.snmp = dispatcher.getSnmp();
+
+		this.address = (UdpAddress) GenericAddress.parse("udp:" + key.getAddress() + "/" + key.getSnmpPort());
+		this.engineID = engineIDCache.getEngineID(address, WebcncApplication.switchConnectionTimeout);
+
+		// the user is localized to the engine ID of the switch, so users with the same
+		// name on other switches stay untouched. The localized keys are only computed
+		// once per engine ID and credentials.
+		this.userName = new OctetString(key.getAuthUserName());
+		OID authProtocol = getAuthProtocol();
+		OID privProtocol = getPrivProtocol();
+		this.keys = keyCache.getKeys(engineID, key, authProtocol, privProtocol);
+		USM usm = snmp.getUSM();
+		usm.addLocalizedUser(engineID.getValue(), userName, authProtocol, keys.authKey, privProtocol, keys.privKey);
+		// informs of the switch are authenticated with the local engine ID instead
+		this.localEngineID = usm.getLocalEngineID();
+		this.localKeys = keyCache.getKeys(localEngineID, key, authProtocol, privProtocol);
+		usm.addLocalizedUser(localEngineID.getValue(), userName, authProtocol, localKeys.authKey, privProtocol,
+				localKeys.privKey);
+		this.rttEstimator = new RTTEstimator(WebcncApplication.switchConnectionTimeout,
+				WebcncApplication.switchConnectionRetries, WebcncApplication.switchConnectionTimeoutFloor,
+				WebcncApplication.switchConnectionTimeoutCeiling);
+		this.requestWindow = new RequestWindow(WebcncApplication.switchRequestWindow);
+
+		this.lastUsedMillis = System.currentTimeMillis();
+	}
+
+	// getters
+	public SNMPSessionKey getKey() {
+		return key;
+	}
+
+	public Snmp getSnmp() {
+		return snmp;
+	}
+
+	// limits the concurrent requests to the switch
+	public RequestWindow getRequestWindow() {
+		return requestWindow;
+	}
+
+	/**
+	 * Returns a new target for one request, with the timeout and retries estimated
+	 * from the measured round-trip times of the switch
+	 * 
+	 * @return the target of the switch
+	 */
+	public UserTarget<UdpAddress> getTarget() {
+		return makeNewTarget(rttEstimator.getTimeout(), rttEstimator.getRetries());
+	}
+
+	/**
+	 * Adds the duration of an answered request to the round-trip time estimation
+	 * 
+	 * @param durationNanos the time in ns until the response arrived
+	 * @param usedTimeout   the timeout in ms of the target the request was sent to
+	 */
+	public void recordResponse(long durationNanos, long usedTimeout) {
+		rttEstimator.addSample(durationNanos, usedTimeout);
+	}
+
+	/**
+	 * Notes a request that wasn´t answered after all retries
+	 */
+	public void recordTimeout() {
+		rttEstimator.addTimeout();
+	}
+
+	public long getLastUsedMillis() {
+		return lastUsedMillis;
+	}
+
+	public int getMaxResponsePDUSize() {
+		return maxResponsePDUSize;
+	}
+
+	public boolean isBulkSupported() {
+		return bulkSupported;
+	}
+
+	// set to false once the switch rejected a GETBULK request
+	public void setBulkSupported(boolean bulkSupported) {
+		this.bulkSupported = bulkSupported;
+	}
+
+	/**
+	 * Lowers the maximum size of response PDUs after the switch answered with
+	 * tooBig, so following batched requests are packed more conservatively
+	 * 
+	 * @param tooBigSize the estimated size of the response that was too big
+	 */
+	public void lowerMaxResponsePDUSize(int tooBigSize) {
+		int newSize = Math.max(MIN_MAX_RESPONSE_PDU_SIZE, tooBigSize * 3 / 4);
+		if (newSize < maxResponsePDUSize) {
+			maxResponsePDUSize = newSize;
+		}
+	}
+
+	/**
+	 * Marks the start of a request on this session. A session with active
+	 * requests is never evicted.
+	 */
+	public void acquire() {
+		activeRequests.incrementAndGet();
+		lastUsedMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * Marks the end of a request that was started with acquire()
+	 */
+	public void release() {
+		lastUsedMillis = System.currentTimeMillis();
+		activeRequests.decrementAndGet();
+	}
+
+	/**
+	 * Indicates whether a request is currently running on this session
+	 * 
+	 * @return true if at least one request is active
+	 */
+	public boolean isInUse() {
+		return activeRequests.get() > 0;
+	}
+
+	/**
+	 * Checks whether the session can still be used to send requests
+	 * 
+	 * @return true if the session is open and its transport is listening
+	 */
+	public boolean isHealthy() {
+		return !closed && transport.isListening();
+	}
+
+	/**
+	 * Closes the session. The shared transports stay open.
+	 * 
+	 * @param removeUsers true to remove the localized users of the session from
+	 *                    the shared USM. Users that are kept still authenticate
+	 *                    notifications of the switch.
+	 */
+	public void close(boolean removeUsers) throws IOException {
+		closed = true;
+		if (removeUsers) {
+			removeUser(engineID, keys);
+			removeUser(localEngineID, localKeys);
+		}
+	}
+
+	private void removeUser(OctetString userEngineID, LocalizedKeyCache.LocalizedKeys userKeys) {
+		USM usm = snmp.getUSM();
+		// a newer session for the same switch may have replaced the user already
+		UsmUserEntry entry = usm.getUser(userEngineID, userName);
+		if (entry != null && Arrays.equals(entry.getAuthenticationKey(), userKeys.authKey)
+				&& Arrays.equals(entry.getPrivacyKey(), userKeys.privKey)) {
+			usm.removeAllUsers(userName, userEngineID);
+		}
+	}
+
+	private UserTarget<UdpAddress> makeNewTarget(long timeout, int retries) {
+		UserTarget<UdpAddress> target = new UserTarget<UdpAddress>();
+		target.setAddress(address);
+		target.setVersion(SnmpConstants.version3);
+		target.setSecurityLevel(SecurityLevel.AUTH_PRIV);
+		target.setSecurityName(new OctetString(key.getAuthUserName()));
+		target.setAuthoritativeEngineID(engineID.getValue());
+		target.setPreferredTransports(Collections.singletonList(transport));
+		target.setRetries(retries);
+		target.setTimeout(timeout);
+		return target;
+	}
+
+	private OID getAuthProtocol() {
+		if (key.getAuthAlgorithm() == AuthAlgorithm.MD5) {
+			return AuthMD5.ID;
+		} else {
+			return AuthSHA.ID;
+		}
+	}
+
+	private OID getPrivProtocol() {
+		if (key.getEncryptAlgorithm() == EncryptionAlgorithm.DES) {
+			return PrivDES.ID;
+		} else {
+			return PrivAES128.ID;
+		}
+	}
+}
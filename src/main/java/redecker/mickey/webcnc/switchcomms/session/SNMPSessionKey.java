@@ -0,0 +1,104 @@
+package redecker.mickey.webcnc.switchcomms.session;
+
+import java.util.Objects;
+
+import redecker.mickey.webcnc.types.enums.AuthAlgorithm;
+import redecker.mickey.webcnc.types.enums.EncryptionAlgorithm;
+
+/**
+ * This class identifies a pooled SNMP session by the address, the SNMP port and
+ * the SNMPv3 credentials of a switch
+ * 
+ * Two communicators that talk to the same switch with the same credentials
+ * share one session. If the credentials of a switch change, a new session is
+ * created and the old one is evicted once it becomes idle.
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public final class SNMPSessionKey {
+
+	private final String address;
+	private final Integer snmpPort;
+	private final String authUserName;
+	private final AuthAlgorithm authAlgorithm;
+	private final String authPassword;
+	private final EncryptionAlgorithm encryptAlgorithm;
+	private final String encryptPassword;
+
+	/**
+	 * 
+	 * @param address          The IP address of the switch
+	 * @param snmpPort         The SNMP-UDP port of the switch
+	 * @param authUserName     the SNMPv3 authentication user name
+	 * @param authAlgorithm    the SNMPv3 authentication algorithm
+	 * @param authPassword     the SNMPv3 authentication password
+	 * @param encryptAlgorithm the SNMPv3 encryption Algorithm
+	 * @param encryptPassword  the SNMPv3 encryption password
+	 */
+	public SNMPSessionKey(String address, Integer snmpPort, String authUserName, AuthAlgorithm authAlgorithm,
+			String authPassword, EncryptionAlgorithm encryptAlgorithm, String encryptPassword) {
+		this.address = address;
+		this.snmpPort = snmpPort;
+		this.authUserName = authUserName;
+		this.authAlgorithm = authAlgorithm;
+		this.authPassword = authPassword;
+		this.encryptAlgorithm = encryptAlgorithm;
+		this.encryptPassword = encryptPassword;
+	}
+
+	// getters
+	public String getAddress() {
+		return address;
+	}
+
+	public Integer getSnmpPort() {
+		return snmpPort;
+	}
+
+	public String getAuthUserName() {
+		return authUserName;
+	}
+
+	public AuthAlgorithm getAuthAlgorithm() {
+		return authAlgorithm;
+	}
+
+	public String getAuthPassword() {
+		return authPassword;
+	}
+
+	public EncryptionAlgorithm getEncryptAlgorithm() {
+		return encryptAlgorithm;
+	}
+
+	public String getEncryptPassword() {
+		return encryptPassword;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		} else if (!(other instanceof SNMPSessionKey)) {
+			return false;
+		}
+		SNMPSessionKey otherKey = (SNMPSessionKey) other;
+		return Objects.equals(address, otherKey.address) && Objects.equals(snmpPort, otherKey.snmpPort)
+				&& Objects.equals(authUserName, otherKey.authUserName) && authAlgorithm == otherKey.authAlgorithm
+				&& Objects.equals(authPassword, otherKey.authPassword) && encryptAlgorithm == otherKey.encryptAlgorithm
+				&& Objects.equals(encryptPassword, otherKey.encryptPassword);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(address, snmpPort, authUserName, authAlgorithm, authPassword, encryptAlgorithm,
+				encryptPassword);
+	}
+
+	// credentials are left out on purpose so keys can be logged
+	@Override
+	public String toString() {
+		return authUserName + "@" + address + "/" + snmpPort;
+	}
+}
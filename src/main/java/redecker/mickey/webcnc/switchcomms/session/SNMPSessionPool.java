@@ -0,0 +1,352 @@
+package redecker.mickey.webcnc.switchcomms.session;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.smi.GenericAddress;
+import org.snmp4j.smi.UdpAddress;
+
+/**
+ * This class keeps one persistent SNMP session per switch address, SNMP port
+ * and SNMPv3 credentials
+ * 
+ * All sessions send their requests over the transports of one shared
+ * SNMPDispatcher, which is owned by the pool.
+ * 
+ * Sessions are created on first use and reused by all following requests to
+ * the same switch. Only one session per key is opened at a time, concurrent
+ * requests wait for it. Asynchronous requests open their sessions on the
+ * opening executor instead of the calling thread. The engine discovery and key
+ * localization of a new session run outside of the session map, so they don´t
+ * block the sessions of other switches. A background task closes sessions that haven´t been used
+ * for longer than the idle timeout. Sessions whose transport stopped listening
+ * are replaced on the next request. The users of idle sessions stay in the USM,
+ * so notifications of the switch can still be authenticated, until the switch
+ * is invalidated.
+ * 
+ * The pool is thread-safe
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SNMPSessionPool {
+
+	private static final Logger logger = LogManager.getLogger(SNMPSessionPool.class);
+
+	private final SNMPDispatcher dispatcher;
+	private final EngineIDCache engineIDCache;
+	private final LocalizedKeyCache keyCache;
+	private final Map<SNMPSessionKey, SNMPSession> sessions = new ConcurrentHashMap<SNMPSessionKey, SNMPSession>();
+	private final Map<SNMPSessionKey, CompletableFuture<SNMPSession>> openingSessions = new ConcurrentHashMap<SNMPSessionKey, CompletableFuture<SNMPSession>>();
+	private final long idleTimeoutMillis;
+	private final ScheduledExecutorService evictionExecutor;
+	private final ExecutorService openingExecutor;
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates a new session pool with its SNMP dispatcher and starts the idle
+	 * eviction task
+	 * 
+	 * @param idleTimeoutMillis the time in ms after which an unused session is
+	 *                          closed
+	 * @param transportCount    the number of UDP transports shared by all
+	 *                          sessions
+	 * @throws IOException If the UDP transports can´t be opened
+	 */
+	public SNMPSessionPool(long idleTimeoutMillis, int transportCount) throws IOException {
+		if (idleTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("idleTimeoutMillis must be greater than 0");
+		}
+		this.dispatcher = new SNMPDispatcher(transportCount);
+		this.engineIDCache = new EngineIDCache(dispatcher);
+		this.keyCache = new LocalizedKeyCache(dispatcher.getSecurityProtocols());
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "snmp-session-eviction");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// engine reports are rare, so the threads are only kept while sessions are reopened
+		this.openingExecutor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "snmp-session-opening");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long evictionPeriod = Math.max(1000L, idleTimeoutMillis / 2);
+		evictionExecutor.scheduleWithFixedDelay(this::evictIdleSessions, evictionPeriod, evictionPeriod,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the session for the specified switch and marks it as in use. A new
+	 * session is opened if there is none yet or the existing one is unhealthy.
+	 * 
+	 * Every call has to be followed by a call to SNMPSession.release()
+	 * 
+	 * @param key the address and credentials of the switch
+	 * @return an open session with the switch
+	 * @throws IOException If a new session can´t be opened
+	 */
+	public SNMPSession acquireSession(SNMPSessionKey key) throws IOException {
+		if (closed) {
+			throw new IOException("SNMP session pool is closed");
+		}
+		while (true) {
+			SNMPSession session = acquireExistingSession(key);
+			if (session != null) {
+				return session;
+			}
+			CompletableFuture<SNMPSession> opening = new CompletableFuture<SNMPSession>();
+			CompletableFuture<SNMPSession> runningOpening = openingSessions.putIfAbsent(key, opening);
+			if (runningOpening != null) {
+				// the session opened by the other request is acquired on the next pass
+				awaitOpening(runningOpening);
+				continue;
+			}
+			try {
+				// another request may have opened the session since the first look
+				session = acquireExistingSession(key);
+				if (session == null) {
+					session = openSession(key);
+				}
+				opening.complete(session);
+				return session;
+			} catch (IOException | RuntimeException e) {
+				opening.completeExceptionally(e);
+				throw e;
+			} finally {
+				openingSessions.remove(key, opening);
+			}
+		}
+	}
+
+	/**
+	 * Returns the session for the specified switch without blocking. An existing
+	 * session is acquired right away, a new session is opened on the opening
+	 * executor, so the caller never waits for the engine discovery of a switch.
+	 * 
+	 * Every successful call has to be followed by a call to
+	 * SNMPSession.release()
+	 * 
+	 * @param key the address and credentials of the switch
+	 * @return a future of an open session with the switch, completed
+	 *         exceptionally with an IOException if a new session can´t be opened
+	 */
+	public CompletableFuture<SNMPSession> acquireSessionAsync(SNMPSessionKey key) {
+		if (closed) {
+			return CompletableFuture.failedFuture(new IOException("SNMP session pool is closed"));
+		}
+		SNMPSession session = acquireExistingSession(key);
+		if (session != null) {
+			return CompletableFuture.completedFuture(session);
+		}
+		CompletableFuture<SNMPSession> runningOpening = openingSessions.get(key);
+		if (runningOpening != null) {
+			// the session opened by the other request is acquired once it is open
+			return runningOpening.handle((openedSession, error) -> {
+				if (error != null) {
+					Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+					throw new CompletionException(new IOException(cause.getMessage(), cause));
+				}
+				return key;
+			}).thenCompose(this::acquireSessionAsync);
+		}
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return acquireSession(key);
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}, openingExecutor);
+		} catch (RejectedExecutionException e) {
+			return CompletableFuture.failedFuture(new IOException("SNMP session pool is closed", e));
+		}
+	}
+
+	/**
+	 * Closes and removes the session for the specified switch, for example after
+	 * a transport error. The next request opens a fresh session.
+	 * 
+	 * @param key the address and credentials of the switch
+	 */
+	public void invalidateSession(SNMPSessionKey key) {
+		SNMPSession session = sessions.remove(key);
+		if (session != null) {
+			closeQuietly(session, true);
+		}
+	}
+
+	/**
+	 * Closes all sessions of a switch and forgets its engine ID and localized
+	 * keys. Has to be called when the credentials of a switch are added, changed
+	 * or removed.
+	 * 
+	 * @param address  the IP address of the switch
+	 * @param snmpPort the SNMP-UDP port of the switch
+	 */
+	public void invalidateSwitch(String address, Integer snmpPort) {
+		invalidateSessions(address, snmpPort);
+		engineIDCache.invalidate(makeAddress(address, snmpPort));
+		keyCache.invalidateSwitch(address, snmpPort);
+	}
+
+	/**
+	 * Forgets the engine ID of a switch and closes all of its sessions, after the
+	 * switch answered with a notInTimeWindow or unknownEngineID report. The next
+	 * request discovers the engine ID again.
+	 * 
+	 * @param key the address and credentials of the switch
+	 */
+	public void invalidateEngineID(SNMPSessionKey key) {
+		invalidateSessions(key.getAddress(), key.getSnmpPort());
+		engineIDCache.invalidate(makeAddress(key.getAddress(), key.getSnmpPort()));
+	}
+
+	/**
+	 * Returns the executor for asynchronous requests that have to open a session,
+	 * for example after invalidateEngineID. Opening a session blocks until
+	 * the switch answers the engine discovery, so it must neither run on the SNMP
+	 * listener threads nor on the common pool.
+	 * 
+	 * @return the executor opening sessions in the background
+	 */
+	public Executor getOpeningExecutor() {
+		return openingExecutor;
+	}
+
+	/**
+	 * Starts listening for traps and informs of the switches. Informs are
+	 * acknowledged automatically.
+	 * 
+	 * @param port      the UDP port to listen on
+	 * @param responder receives all traps and informs
+	 * @throws IOException If the port can´t be opened
+	 */
+	public void addNotificationListener(int port, CommandResponder responder) throws IOException {
+		dispatcher.addNotificationListener(port, responder);
+	}
+
+	/**
+	 * Returns the number of currently open sessions
+	 * 
+	 * @return number of open sessions
+	 */
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * Stops the eviction task, closes all sessions and the SNMP dispatcher
+	 */
+	public void close() {
+		closed = true;
+		evictionExecutor.shutdownNow();
+		openingExecutor.shutdownNow();
+		for (SNMPSessionKey key : sessions.keySet()) {
+			invalidateSession(key);
+		}
+		try {
+			dispatcher.close();
+		} catch (IOException e) {
+			logger.catching(e);
+		}
+		logger.info("SNMP session pool closed");
+	}
+
+	// closes sessions that are idle for too long or whose transport died
+	private void evictIdleSessions() {
+		long now = System.currentTimeMillis();
+		for (SNMPSessionKey key : sessions.keySet()) {
+			sessions.computeIfPresent(key, (sessionKey, session) -> {
+				if (session.isInUse()) {
+					return session;
+				}
+				if (!session.isHealthy() || now - session.getLastUsedMillis() > idleTimeoutMillis) {
+					logger.debug("Evicting SNMP session " + sessionKey);
+					closeQuietly(session, false);
+					return null;
+				}
+				return session;
+			});
+		}
+	}
+
+	// closes the sessions of all credentials used for a switch
+	private void invalidateSessions(String address, Integer snmpPort) {
+		for (SNMPSessionKey key : sessions.keySet()) {
+			if (Objects.equals(key.getAddress(), address) && Objects.equals(key.getSnmpPort(), snmpPort)) {
+				invalidateSession(key);
+			}
+		}
+	}
+
+	private UdpAddress makeAddress(String address, Integer snmpPort) {
+		return (UdpAddress) GenericAddress.parse("udp:" + address + "/" + snmpPort);
+	}
+
+	// acquires the healthy session of the key, returns null if there is none
+	private SNMPSession acquireExistingSession(SNMPSessionKey key) {
+		return sessions.computeIfPresent(key, (sessionKey, existingSession) -> {
+			if (existingSession.isHealthy()) {
+				existingSession.acquire();
+				return existingSession;
+			}
+			logger.info("Replacing unhealthy SNMP session " + sessionKey);
+			closeQuietly(existingSession, false);
+			return null;
+		});
+	}
+
+	// opens and acquires a new session, only called by the request owning the
+	// opening of the key
+	private SNMPSession openSession(SNMPSessionKey key) throws IOException {
+		SNMPSession newSession = new SNMPSession(key, dispatcher, engineIDCache, keyCache);
+		newSession.acquire();
+		sessions.put(key, newSession);
+		logger.debug("Opened SNMP session " + key);
+		if (closed) {
+			invalidateSession(key);
+			throw new IOException("SNMP session pool is closed");
+		}
+		return newSession;
+	}
+
+	// waits until another request opened the session of a key
+	private void awaitOpening(CompletableFuture<SNMPSession> opening) throws IOException {
+		try {
+			opening.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the SNMP session");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw new IOException(e.getCause().getMessage(), e.getCause());
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private void closeQuietly(SNMPSession session, boolean removeUsers) {
+		try {
+			session.close(removeUsers);
+		} catch (IOException e) {
+			logger.catching(e);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package redecker.mickey.webcnc.switchcomms.talker;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import redecker.mickey.webcnc.types.GCLEntry;
+
+/**
+ * This class encodes and decodes gate control lists as the octet strings of
+ * AdminControlList and OperControlList
+ * 
+ * Every entry is a 7 byte TLV: 1 byte operation, 1 byte length and a 5 byte
+ * value containing the gate states as a bit mask (gate 0 in the most
+ * significant bit) followed by the time interval in ns as a 32 bit unsigned
+ * integer. The TLVs are read from and written to a ByteBuffer directly.
+ * 
+ * The gate states of an entry are copied as their bit mask. The identifiers of
+ * decoded entries are derived from the position and content of the entry, so
+ * decoding the same list twice yields the same identifiers.
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public final class GCLCodec {
+
+	public static final int TLV_SIZE = 7; // operation, length, gate states and 4 bytes time interval
+	public static final int MAX_ENTRIES = 65535 / TLV_SIZE; // an OCTET STRING holds at most 65535 bytes
+
+	private static final byte SET_GATE_STATES = 0; // the only operation used by the switches
+	private static final byte SET_GATE_STATES_LENGTH = 5; // gate states and time interval
+	private static final long MAX_SAFE_INTEGER = 9007199254740991L; // max number int in typescript
+
+	private GCLCodec() {
+	}
+
+	/**
+	 * Encodes a gate control list into a new array of TLVs
+	 * 
+	 * @param gcl the gate control list to encode
+	 * @return the TLVs of all entries
+	 */
+	public static byte[] encode(List<GCLEntry> gcl) {
+		if (gcl.size() > MAX_ENTRIES) {
+			throw new IllegalArgumentException("gate control list has more than " + MAX_ENTRIES + " entries");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(TLV_SIZE * gcl.size());
+		for (GCLEntry entry : gcl) {
+			buffer.put(SET_GATE_STATES);
+			buffer.put(SET_GATE_STATES_LENGTH);
+			buffer.put(entry.getGateMask());
+			buffer.putInt((int) entry.getTimeInNs().longValue()); // unsigned, the upper bits are cut off
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Decodes the TLVs of a gate control list. TLVs of other operations than
+	 * setGateStates are skipped.
+	 * 
+	 * @param buffer the buffer positioned at the first TLV, its remaining bytes
+	 *               are consumed
+	 * @return the decoded gate control list
+	 */
+	public static List<GCLEntry> decode(ByteBuffer buffer) {
+		List<GCLEntry> gcl = new ArrayList<GCLEntry>(buffer.remaining() / TLV_SIZE);
+		while (buffer.remaining() >= 2) {
+			byte operation = buffer.get();
+			int length = buffer.get() & 0xFF;
+			if (length > buffer.remaining()) {
+				break; // truncated TLV
+			}
+			if (operation != SET_GATE_STATES || length != SET_GATE_STATES_LENGTH) {
+				buffer.position(buffer.position() + length);
+				continue;
+			}
+			byte gateMask = buffer.get();
+			long timeInNs = buffer.getInt() & 0xFFFFFFFFL;
+			gcl.add(new GCLEntry(makeEntryIdentifier(gcl.size(), gateMask, timeInNs), gateMask, timeInNs));
+		}
+		return gcl;
+	}
+
+	/**
+	 * Derives the identifier of a decoded entry by mixing its position and
+	 * content (SplitMix64 finalizer). The identifier is positive and fits into a
+	 * number of the frontend.
+	 * 
+	 * @param index    the position of the entry in the list
+	 * @param gateMask the gate states of the entry
+	 * @param timeInNs the time interval of the entry
+	 * @return the identifier of the entry
+	 */
+	static long makeEntryIdentifier(int index, byte gateMask, long timeInNs) {
+		long mixed = ((long) index << 40) ^ ((long) (gateMask & 0xFF) << 32) ^ timeInNs;
+		mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+		mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+		mixed = mixed ^ (mixed >>> 31);
+		return mixed & MAX_SAFE_INTEGER;
+	}
+}
@@ -0,0 +1,109 @@
+package redecker.mickey.webcnc.switchcomms.talker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import redecker.mickey.webcnc.types.LLDPDataTuple;
+import redecker.mickey.webcnc.types.QbvChangeIndicatorsTuple;
+import redecker.mickey.webcnc.types.QbvParametersTuple;
+
+/**
+ * This interface defines non-blocking SNMP operations on a switch
+ * 
+ * Every operation sends its requests and returns immediately. The returned
+ * CompletableFuture is completed when the switch answered, or completed
+ * exceptionally with a CommsException if the switch can´t be reached or
+ * answers with an error
+ * 
+ * The futures are completed by the SNMP listener thread or, if a session had
+ * to be opened first, by a session opening thread, so dependent actions must
+ * not block. Blocking work has to be moved to another executor with the
+ * async variants of the CompletableFuture methods
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public interface IAsyncSwitchCommsCommunicator {
+
+	/**
+	 * Get the sysName parameter from the switch
+	 * 
+	 * @return a future of the sysName of the switch
+	 */
+	public CompletableFuture<String> getSysnameAsync();
+
+	/**
+	 * Gets the LLDP remote systems data of the switch
+	 * 
+	 * @return a future of a list of LLDPDataTuples containing the local port
+	 *         number, remote sysName and remote portId
+	 */
+	public CompletableFuture<List<LLDPDataTuple>> getLLDPRemDataAsync();
+
+	/**
+	 * Gets the gateEnabled, operCycleTimeNumerator, operCycleTimeDenominator,
+	 * operCycleTimeExtension, operBaseTime and operControlList parameters of the
+	 * port with a single request
+	 * 
+	 * @return a future of the QbvParametersTuple of the port
+	 */
+	public CompletableFuture<QbvParametersTuple> getOperParametersAsync();
+
+	/**
+	 * Gets the operational parameters of several ports of the switch. The ports
+	 * are packed into as few requests as the message size of the switch allows and
+	 * the requests are sent concurrently.
+	 * 
+	 * @param portNumbers the numbers of the ports to read
+	 * @return a future of a QbvParametersTuple for each port, in the order of
+	 *         portNumbers
+	 */
+	public CompletableFuture<List<QbvParametersTuple>> getOperParametersAsync(List<Integer> portNumbers);
+
+	/**
+	 * Gets the operational parameters of several ports of the switch. The
+	 * requests are packed by the known lengths of the gate control lists, for
+	 * example from the change indicators or the last read, ports without a known
+	 * length are packed by an estimate.
+	 * 
+	 * @param portNumbers        the numbers of the ports to read
+	 * @param controlListLengths the known operControlListLength per port number
+	 * @return a future of a QbvParametersTuple for each port, in the order of
+	 *         portNumbers
+	 */
+	public CompletableFuture<List<QbvParametersTuple>> getOperParametersAsync(List<Integer> portNumbers,
+			Map<Integer, Long> controlListLengths);
+
+	/**
+	 * Gets the gateEnabled, configChangeTime, configPending and
+	 * operControlListLength parameters of several ports of the switch. They change
+	 * whenever the operational parameters change, but are much smaller. The ports
+	 * are packed into as few requests as the message size of the switch allows and
+	 * the requests are sent concurrently.
+	 * 
+	 * @param portNumbers the numbers of the ports to read
+	 * @return a future of a QbvChangeIndicatorsTuple for each port, in the order
+	 *         of portNumbers
+	 */
+	public CompletableFuture<List<QbvChangeIndicatorsTuple>> getQbvChangeIndicatorsAsync(List<Integer> portNumbers);
+
+	/**
+	 * Gets the lldpStatsRemTablesLastChangeTime parameter from the switch, which
+	 * changes whenever the LLDP remote data changes
+	 * 
+	 * @return a future of the sysUpTime of the last change in hundredths of a
+	 *         second
+	 */
+	public CompletableFuture<Long> getLLDPRemTablesLastChangeAsync();
+
+	/**
+	 * Sets the admin parameters of the port and triggers configChange with a
+	 * single request
+	 * 
+	 * @param parameters QbvParametersTuple containing the admin parameters to be
+	 *                   set, the portNumber of the tuple is ignored
+	 * @return a future that is completed once the switch accepted the parameters
+	 */
+	public CompletableFuture<Void> setAdminParametersAsync(QbvParametersTuple parameters);
+}
@@ -1,10 +1,13 @@
 package redecker.mickey.webcnc.switchcomms.talker;
 
 import java.util.List;
+import java.util.Map;
 
 import redecker.mickey.webcnc.types.GCLEntry;
 import redecker.mickey.webcnc.types.LLDPDataTuple;
 import redecker.mickey.webcnc.types.PTPTimeTuple;
+import redecker.mickey.webcnc.types.QbvChangeIndicatorsTuple;
+import redecker.mickey.webcnc.types.QbvParametersTuple;
 import redecker.mickey.webcnc.types.exceptions.CommsException;
 
 /**
@@ -118,6 +121,21 @@ public interface ISwitchCommsCommunicator {
 	 * @throws CommsException
 	 */
 	public void setConfigChange() throws CommsException;
+
+	/**
+	 * Sets the adminBaseTime, adminControlListLength, adminControlList,
+	 * adminCycleTimeNumerator, adminCycleTimeDenominator, adminCycleTimeExtension
+	 * and gateEnabled parameters of the port and triggers configChange with a
+	 * single request, so the switch applies the new configuration in one step
+	 * 
+	 * If the switch refuses to trigger configChange in the same request, it is
+	 * sent right after the admin parameters
+	 * 
+	 * @param parameters QbvParametersTuple containing the admin parameters to be
+	 *                   set, the portNumber of the tuple is ignored
+	 * @throws CommsException
+	 */
+	public void setAdminParameters(QbvParametersTuple parameters) throws CommsException;
 	
 	/**
 	 * Gets the gateEnabled parameter of the port
@@ -153,6 +171,60 @@ public interface ISwitchCommsCommunicator {
 	 */
 	public List<LLDPDataTuple> getLLDPRemData() throws CommsException;
 
+	/**
+	 * Gets the gateEnabled, operCycleTimeNumerator, operCycleTimeDenominator,
+	 * operCycleTimeExtension, operBaseTime and operControlList parameters of the
+	 * port with a single request
+	 * 
+	 * @return QbvParametersTuple containing the operational parameters of the port
+	 * @throws CommsException
+	 */
+	public QbvParametersTuple getOperParameters() throws CommsException;
+
+	/**
+	 * Gets the operational parameters of several ports of the switch. The ports
+	 * are packed into as few requests as the message size of the switch allows.
+	 * 
+	 * @param portNumbers the numbers of the ports to read
+	 * @return a QbvParametersTuple for each port, in the order of portNumbers
+	 * @throws CommsException
+	 */
+	public List<QbvParametersTuple> getOperParameters(List<Integer> portNumbers) throws CommsException;
+
+	/**
+	 * Gets the operational parameters of several ports of the switch. The
+	 * requests are packed by the known lengths of the gate control lists, ports
+	 * without a known length are packed by an estimate.
+	 * 
+	 * @param portNumbers        the numbers of the ports to read
+	 * @param controlListLengths the known operControlListLength per port number
+	 * @return a QbvParametersTuple for each port, in the order of portNumbers
+	 * @throws CommsException
+	 */
+	public List<QbvParametersTuple> getOperParameters(List<Integer> portNumbers,
+			Map<Integer, Long> controlListLengths) throws CommsException;
+
+	/**
+	 * Gets the gateEnabled, configChangeTime, configPending and
+	 * operControlListLength parameters of several ports of the switch. They change
+	 * whenever the operational parameters change, but are much smaller. The ports
+	 * are packed into as few requests as the message size of the switch allows.
+	 * 
+	 * @param portNumbers the numbers of the ports to read
+	 * @return a QbvChangeIndicatorsTuple for each port, in the order of
+	 *         portNumbers
+	 * @throws CommsException
+	 */
+	public List<QbvChangeIndicatorsTuple> getQbvChangeIndicators(List<Integer> portNumbers) throws CommsException;
+
+	/**
+	 * Gets the lldpStatsRemTablesLastChangeTime parameter from the switch, which
+	 * changes whenever the LLDP remote data changes
+	 * 
+	 * @return the sysUpTime of the last change in hundredths of a second
+	 * @throws CommsException
+	 */
+	public Long getLLDPRemTablesLastChange() throws CommsException;
 
 
 }
@@ -0,0 +1,160 @@
+package redecker.mickey.webcnc.switchcomms.talker;
+
+import org.snmp4j.smi.OID;
+
+/**
+ * This class holds the OIDs of all MIB objects used to talk to the switches
+ * 
+ * The OIDs are stored as prebuilt sub-identifier arrays. Instance OIDs of a
+ * port are created by appending the port number to the prefix of the column,
+ * so no OID string has to be parsed on a request. Since OIDs of SNMP4J are
+ * mutable, every call returns a new OID and the prefixes are never handed out.
+ * 
+ * The Qbv objects are the columns of ieee8021STParametersEntry of the
+ * IEEE8021-ST-MIB, indexed by the component ID and the port number. The LLDP
+ * objects are the columns of lldpRemEntry of the LLDP-MIB. The notification
+ * OIDs identify the traps and informs the switches send.
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public final class OIDCatalogue {
+
+	// columns of ieee8021STParametersEntry
+	public static final int GATE_ENABLED = 1;
+	public static final int ADMIN_CONTROL_LIST_LENGTH = 4;
+	public static final int OPER_CONTROL_LIST_LENGTH = 5;
+	public static final int ADMIN_CONTROL_LIST = 6;
+	public static final int OPER_CONTROL_LIST = 7;
+	public static final int ADMIN_CYCLE_TIME_NUMERATOR = 8;
+	public static final int ADMIN_CYCLE_TIME_DENOMINATOR = 9;
+	public static final int OPER_CYCLE_TIME_NUMERATOR = 10;
+	public static final int OPER_CYCLE_TIME_DENOMINATOR = 11;
+	public static final int ADMIN_CYCLE_TIME_EXTENSION = 12;
+	public static final int OPER_CYCLE_TIME_EXTENSION = 13;
+	public static final int ADMIN_BASE_TIME = 14;
+	public static final int OPER_BASE_TIME = 15;
+	public static final int CONFIG_CHANGE = 16;
+	public static final int CONFIG_CHANGE_TIME = 17;
+	public static final int CONFIG_PENDING = 20;
+
+	private static final int[] QBV_ENTRY = { 1, 3, 111, 2, 802, 1, 1, 30, 1, 2, 1, 1 };
+	private static final int COMPONENT_ID = 1; // the switches only have one bridge component
+	private static final int MAX_QBV_COLUMN = CONFIG_PENDING;
+
+	// entry, column and component ID of every Qbv column, indexed by the column
+	private static final int[][] QBV_PREFIXES = makeQbvPrefixes();
+
+	private static final int[] SYS_NAME = { 1, 3, 6, 1, 2, 1, 1, 5, 0 };
+	private static final int[] LLDP_REM_PORT_ID = { 1, 0, 8802, 1, 1, 2, 1, 4, 1, 1, 7 };
+	private static final int[] LLDP_REM_SYS_NAME = { 1, 0, 8802, 1, 1, 2, 1, 4, 1, 1, 9 };
+	private static final int[] LLDP_STATS_REM_TABLES_LAST_CHANGE_TIME = { 1, 0, 8802, 1, 1, 2, 1, 2, 1, 0 };
+	private static final int[] IF_INDEX = { 1, 3, 6, 1, 2, 1, 2, 2, 1, 1 };
+
+	private static final int[] SNMP_TRAP_OID = { 1, 3, 6, 1, 6, 3, 1, 1, 4, 1, 0 };
+	private static final int[] LINK_DOWN = { 1, 3, 6, 1, 6, 3, 1, 1, 5, 3 };
+	private static final int[] LINK_UP = { 1, 3, 6, 1, 6, 3, 1, 1, 5, 4 };
+
+	private OIDCatalogue() {
+	}
+
+	/**
+	 * Returns the instance OID of a Qbv object of a port
+	 * 
+	 * @param column     the column of the object in ieee8021STParametersEntry
+	 * @param portNumber the number of the port
+	 * @return a new OID of the object
+	 */
+	public static OID qbv(int column, int portNumber) {
+		if (column < 1 || column > MAX_QBV_COLUMN) {
+			throw new IllegalArgumentException("column " + column + " is not part of ieee8021STParametersEntry");
+		}
+		return new OID(QBV_PREFIXES[column], portNumber);
+	}
+
+	/**
+	 * Returns the instance OID of sysName
+	 * 
+	 * @return a new OID of sysName
+	 */
+	public static OID sysName() {
+		return new OID(SYS_NAME);
+	}
+
+	/**
+	 * Returns the column OID of lldpRemSysName, used for table walks
+	 * 
+	 * @return a new OID of the column
+	 */
+	public static OID lldpRemSysName() {
+		return new OID(LLDP_REM_SYS_NAME);
+	}
+
+	/**
+	 * Returns the column OID of lldpRemPortId, used for table walks
+	 * 
+	 * @return a new OID of the column
+	 */
+	public static OID lldpRemPortId() {
+		return new OID(LLDP_REM_PORT_ID);
+	}
+
+	/**
+	 * Returns the instance OID of lldpStatsRemTablesLastChangeTime, the sysUpTime
+	 * of the last change of the LLDP remote table
+	 * 
+	 * @return a new OID of lldpStatsRemTablesLastChangeTime
+	 */
+	public static OID lldpStatsRemTablesLastChangeTime() {
+		return new OID(LLDP_STATS_REM_TABLES_LAST_CHANGE_TIME);
+	}
+
+	/**
+	 * Returns the column OID of ifIndex, contained in link notifications
+	 * 
+	 * @return a new OID of the column
+	 */
+	public static OID ifIndex() {
+		return new OID(IF_INDEX);
+	}
+
+	/**
+	 * Returns the instance OID of snmpTrapOID, whose value identifies a
+	 * notification
+	 * 
+	 * @return a new OID of snmpTrapOID
+	 */
+	public static OID snmpTrapOID() {
+		return new OID(SNMP_TRAP_OID);
+	}
+
+	/**
+	 * Returns the OID of the linkDown notification
+	 * 
+	 * @return a new OID of the notification
+	 */
+	public static OID linkDown() {
+		return new OID(LINK_DOWN);
+	}
+
+	/**
+	 * Returns the OID of the linkUp notification
+	 * 
+	 * @return a new OID of the notification
+	 */
+	public static OID linkUp() {
+		return new OID(LINK_UP);
+	}
+
+	private static int[][] makeQbvPrefixes() {
+		int[][] prefixes = new int[MAX_QBV_COLUMN + 1][];
+		for (int column = 1; column <= MAX_QBV_COLUMN; column++) {
+			int[] prefix = new int[QBV_ENTRY.length + 2];
+			System.arraycopy(QBV_ENTRY, 0, prefix, 0, QBV_ENTRY.length);
+			prefix[QBV_ENTRY.length] = column;
+			prefix[QBV_ENTRY.length + 1] = COMPONENT_ID;
+			prefixes[column] = prefix;
+		}
+		return prefixes;
+	}
+}
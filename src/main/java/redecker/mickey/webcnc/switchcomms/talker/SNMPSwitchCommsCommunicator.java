@@ -3,44 +3,44 @@ package redecker.mickey.webcnc.switchcomms.talker;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.ToIntFunction;
 
 import org.snmp4j.PDU;
 import org.snmp4j.ScopedPDU;
-import org.snmp4j.Snmp;
-import org.snmp4j.TransportMapping;
 import org.snmp4j.UserTarget;
+import org.snmp4j.Snmp;
 import org.snmp4j.event.ResponseEvent;
-import org.snmp4j.mp.MPv3;
+import org.snmp4j.event.ResponseListener;
 import org.snmp4j.mp.MessageProcessingModel;
 import org.snmp4j.mp.SnmpConstants;
-import org.snmp4j.security.AuthMD5;
-import org.snmp4j.security.AuthSHA;
-import org.snmp4j.security.PrivAES128;
-import org.snmp4j.security.PrivDES;
-import org.snmp4j.security.SecurityLevel;
-import org.snmp4j.security.SecurityModels;
-import org.snmp4j.security.SecurityProtocols;
-import org.snmp4j.security.USM;
-import org.snmp4j.security.UsmUser;
-import org.snmp4j.smi.GenericAddress;
+import org.snmp4j.smi.Address;
 import org.snmp4j.smi.Integer32;
 import org.snmp4j.smi.OID;
 import org.snmp4j.smi.OctetString;
 import org.snmp4j.smi.UdpAddress;
 import org.snmp4j.smi.UnsignedInteger32;
+import org.snmp4j.smi.Variable;
 import org.snmp4j.smi.VariableBinding;
-import org.snmp4j.transport.DefaultUdpTransportMapping;
 import org.snmp4j.util.PDUFactory;
 import org.snmp4j.util.TableEvent;
+import org.snmp4j.util.TableListener;
 import org.snmp4j.util.TableUtils;
 
 import redecker.mickey.webcnc.setup.WebcncApplication;
+import redecker.mickey.webcnc.switchcomms.session.RequestWindow;
+import redecker.mickey.webcnc.switchcomms.session.SNMPSession;
+import redecker.mickey.webcnc.switchcomms.session.SNMPSessionKey;
 import redecker.mickey.webcnc.types.GCLEntry;
 import redecker.mickey.webcnc.types.LLDPDataTuple;
 import redecker.mickey.webcnc.types.PTPTimeTuple;
+import redecker.mickey.webcnc.types.QbvChangeIndicatorsTuple;
+import redecker.mickey.webcnc.types.QbvParametersTuple;
 import redecker.mickey.webcnc.types.enums.AuthAlgorithm;
 import redecker.mickey.webcnc.types.enums.EncryptionAlgorithm;
 import redecker.mickey.webcnc.types.exceptions.PDUErrorException;
@@ -58,12 +58,19 @@ import org.apache.logging.log4j.Logger;
  * It gets/sets TSN-parameters defined in IEEE 802.1Qbv and LLDP information
  * about the switch and its neighbors
  * 
- * The class uses the SNMP4J library for the SNMP communication with the switch
+ * The class uses the SNMP4J library for the SNMP communication with the switch.
+ * The SNMP sessions are taken from the application-wide SNMPSessionPool, so
+ * all communicators share the few sockets of its SNMPDispatcher.
+ * 
+ * All requests are sent asynchronously, the blocking operations wait for the
+ * result of their asynchronous counterpart. New sessions are opened on the
+ * opening executor of the pool, so the asynchronous operations never wait for
+ * the engine discovery of a switch
  * 
  * @author Mickey Redecker
  *
  */
-public class SNMPSwitchCommsCommunicator implements ISwitchCommsCommunicator {
+public class SNMPSwitchCommsCommunicator implements ISwitchCommsCommunicator, IAsyncSwitchCommsCommunicator {
 
 	private String ipAddress;
 	private Integer snmpPort;
@@ -73,9 +80,22 @@ public class SNMPSwitchCommsCommunicator implements ISwitchCommsCommunicator {
 	private String authPassword;
 	private EncryptionAlgorithm encryptAlgorithm;
 	private String encryptPassword;
+	private SNMPSessionKey sessionKey;
 
 	private static final Logger logger = LogManager.getLogger(SNMPSwitchCommsCommunicator.class);
 
+	private static final int PDU_HEADER_SIZE = 32; // request id, error status and index and sequence headers
+	private static final int ESTIMATED_CONTROL_LIST_LENGTH = 16; // control list entries of ports of unknown length
+	private static final int ESTIMATED_LLDP_ROW_SIZE = 120; // two OIDs with index and sysName and portId values
+
+	// the operational Qbv parameters read per port, in the order of their variable bindings
+	private static final int[] OPER_PARAMETER_COLUMNS = { OIDCatalogue.GATE_ENABLED,
+			OIDCatalogue.OPER_CYCLE_TIME_NUMERATOR, OIDCatalogue.OPER_CYCLE_TIME_DENOMINATOR,
+			OIDCatalogue.OPER_CYCLE_TIME_EXTENSION, OIDCatalogue.OPER_BASE_TIME, OIDCatalogue.OPER_CONTROL_LIST };
+	// the columns read per port to detect changes of the operational parameters
+	private static final int[] CHANGE_INDICATOR_COLUMNS = { OIDCatalogue.GATE_ENABLED,
+			OIDCatalogue.CONFIG_CHANGE_TIME, OIDCatalogue.CONFIG_PENDING, OIDCatalogue.OPER_CONTROL_LIST_LENGTH };
+
 	/**
 	 * creates the SwitchCommsCommunicator with the SNMPv3 credentials of the target
 	 * switch
@@ -104,217 +124,23 @@ public class SNMPSwitchCommsCommunicator implements ISwitchCommsCommunicator {
 		this.authPassword = authPassword;
 		this.encryptAlgorithm = encryptAlgorithm;
 		this.encryptPassword = encryptPassword;
+		this.sessionKey = new SNMPSessionKey(ipAddress, snmpPort, authUserName, authAlgorithm, authPassword,
+				encryptAlgorithm, encryptPassword);
 	}
 
 	@Override
 	public List<GCLEntry> getOperControlList() throws CommsException {
 
-		List<GCLEntry> gcl = new LinkedList<GCLEntry>();
-
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
-
-			addSNMPUser(snmp);
-
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
-
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			pdu.add(new VariableBinding(new OID("1.3.111.2.802.1.1.30.1.2.1.1.7.1." + portNumber.toString())));
-			pdu.setType(ScopedPDU.GET);
-
-			ResponseEvent response = snmp.get(pdu, target);
-
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
-
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
-
-					if (errorStatus == PDU.noError) {
-						OctetString octetStringResponse = (OctetString) responsePDU.getVariableBindings().get(0)
-								.getVariable();
-						byte[] responseGCL = octetStringResponse.getValue();
-
-						// every 7 bytes represent a GCL entry
-						int numberOfEntries = responseGCL.length / 7;
-
-						// create a GCLEntry for each GCL entry
-						for (int i = 0; i < numberOfEntries; i++) {
-							byte[] tlv = new byte[7];
-
-							// copy over corresponding bytes from response
-							for (int byteCounter = 0; byteCounter < 7; byteCounter++) {
-								tlv[byteCounter] = responseGCL[i * 7 + byteCounter];
-							}
-
-							// calculate gateStates List
-							List<Boolean> gateStates = new LinkedList<Boolean>();
-							for (int counter = 0; counter < 8; counter++) {
-								// select which bit to copy over
-								int bitSelector = 1 << (7 - counter);
-								// retrieve gate bit
-								if ((tlv[2] & bitSelector) != 0) {
-									gateStates.add(true);
-								} else {
-									gateStates.add(false);
-								}
-							}
-
-							// Retrieve interval time
-							long intervalTime = 0L; // Initialize your long
-							intervalTime |= ((long) tlv[3] & 0xFF) << 24;
-							intervalTime |= ((long) tlv[4] & 0xFF) << 16;
-							intervalTime |= ((long) tlv[5] & 0xFF) << 8;
-							intervalTime |= ((long) tlv[6] & 0xFF);
-
-							// generate new gcl entry identifier
-							long maxSafeInteger = 9007199254740991L; //max number int in typescript
-							Random random = new Random();
-							Long id = (long) (random.nextDouble() * maxSafeInteger);
-
-							// make new GCL Entry and add it to list
-							GCLEntry newEntry = new GCLEntry(id, gateStates, intervalTime);
-							gcl.add(newEntry);
-
-						}
-
-					} else {
-						throw new PDUErrorException("getOperControlList | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("getOperControlList");
-				}
-			} else {
-				throw new ResponseNullException("getOperControlList");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
-		}
-		return gcl;
+		PDU responsePDU = get(OIDCatalogue.qbv(OIDCatalogue.OPER_CONTROL_LIST, portNumber),
+				"getOperControlList");
+		return decodeControlList(responsePDU.getVariableBindings().get(0).getVariable());
 	}
 
 	@Override
 	public void setAdminControlList(List<GCLEntry> gcl) throws CommsException {
 
-		int length = gcl.size();
-		byte[] allTLVs = new byte[7 * length]; // each TLV is 7 bytes
-
-		// make TLVs for each entry one by one and add them to allTLVs
-		for (int i = 0; i < length; i++) {
-
-			// a new TLV for one gcl entry
-			byte[] tlv = new byte[7]; // 1 byte for operation, 1 byte for length, 1 byte for GateState, 4 bytes for
-										// TimeInterval
-			tlv[0] = (byte) 0; // operation setGateStates
-			tlv[1] = (byte) 5; // length is always 5 for operation setGateStates
-
-			// make byte for gateStates
-			byte[] gateStatesByte = new byte[1]; // One byte array with a single byte
-			List<Boolean> gateStates = gcl.get(i).getGateStates();
-
-			// go through all gateStates and set the corresponding bit
-			for (int counter = 0; counter < 8; counter++) {
-				if (gateStates.get(counter)) {
-					gateStatesByte[0] |= 1 << (7 - counter);
-				}
-			}
-			tlv[2] = gateStatesByte[0]; // add gateStates to tlv
-
-			// 4th to 7th byte represents the interval time
-			long timeInNs = gcl.get(i).getTimeInNs();
-			tlv[3] = (byte) (timeInNs >> 24);
-			tlv[4] = (byte) (timeInNs >> 16);
-			tlv[5] = (byte) (timeInNs >> 8);
-			tlv[6] = (byte) (timeInNs);
-
-			// add tlv to allTLVs
-			for (int byteCounter = 0; byteCounter < 7; byteCounter++) {
-				allTLVs[7 * i + byteCounter] = tlv[byteCounter];
-			}
-
-		}
-
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
-
-			addSNMPUser(snmp);
-
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
-
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			OID oid = new OID("1.3.111.2.802.1.1.30.1.2.1.1.6.1." + portNumber.toString());
-			VariableBinding varBind = new VariableBinding(oid, new OctetString(allTLVs));
-			pdu.add(varBind);
-			pdu.setType(PDU.SET);
-
-			ResponseEvent response = snmp.set(pdu, target);
-
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
-
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
-
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-					} else {
-
-						throw new PDUErrorException("setAdminControlList | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("setAdminControlList");
-				}
-			} else {
-				throw new ResponseNullException("setAdminControlList");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
-		}
-
+		set(OIDCatalogue.qbv(OIDCatalogue.ADMIN_CONTROL_LIST, portNumber), encodeControlList(gcl),
+				"setAdminControlList");
 	}
 
 	@Override
@@ -322,540 +148,536 @@ public class SNMPSwitchCommsCommunicator implements ISwitchCommsCommunicator {
 
 		Long length = (long) gcl.size();
 
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
-
-			addSNMPUser(snmp);
-
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
-
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			OID oid = new OID("1.3.111.2.802.1.1.30.1.2.1.1.4.1." + portNumber.toString());
-			VariableBinding varBind = new VariableBinding(oid, new UnsignedInteger32(length));
-			pdu.add(varBind);
-			pdu.setType(PDU.SET);
-
-			ResponseEvent response = snmp.set(pdu, target);
-
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
-
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
-
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-					} else {
-
-						throw new PDUErrorException("setAdminControlListLength | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("setAdminControlListLength");
-				}
-			} else {
-				throw new ResponseNullException("setAdminControlListLength");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
-		}
-
+		set(OIDCatalogue.qbv(OIDCatalogue.ADMIN_CONTROL_LIST_LENGTH, portNumber),
+				new UnsignedInteger32(length), "setAdminControlListLength");
 	}
 
 	@Override
 	public Long getOperCycleTimeNumerator() throws CommsException {
 
-		Long numerator = 0L;
-
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
-
-			addSNMPUser(snmp);
-
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
-
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			pdu.add(new VariableBinding(new OID("1.3.111.2.802.1.1.30.1.2.1.1.10.1." + portNumber.toString())));
-			pdu.setType(ScopedPDU.GET);
-
-			ResponseEvent response = snmp.get(pdu, target);
-
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
-
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
-
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-						numerator = responsePDU.getVariableBindings().get(0).getVariable().toLong();
-
-					} else {
-
-						throw new PDUErrorException("getOperCycleTimeNumerator | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("getOperCycleTimeNumerator");
-				}
-			} else {
-				throw new ResponseNullException("getOperCycleTimeNumerator");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
-		}
-		return numerator;
+		PDU responsePDU = get(OIDCatalogue.qbv(OIDCatalogue.OPER_CYCLE_TIME_NUMERATOR, portNumber),
+				"getOperCycleTimeNumerator");
+		return responsePDU.getVariableBindings().get(0).getVariable().toLong();
 	}
 
 	@Override
 	public void setAdminCycleTimeNumerator(Long cycleTimeNumerator) throws CommsException {
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
-
-			addSNMPUser(snmp);
-
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
-
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			OID oid = new OID("1.3.111.2.802.1.1.30.1.2.1.1.8.1." + portNumber.toString());
-			VariableBinding varBind = new VariableBinding(oid, new UnsignedInteger32(cycleTimeNumerator));
-			pdu.add(varBind);
-			pdu.setType(PDU.SET);
-
-			ResponseEvent response = snmp.set(pdu, target);
-
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
-
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
-
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-					} else {
-
-						throw new PDUErrorException("setAdminCycleTimeNumerator | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("setAdminCycleTimeNumerator");
-				}
-			} else {
-				throw new ResponseNullException("setAdminCycleTimeNumerator");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
-		}
 
+		set(OIDCatalogue.qbv(OIDCatalogue.ADMIN_CYCLE_TIME_NUMERATOR, portNumber),
+				new UnsignedInteger32(cycleTimeNumerator), "setAdminCycleTimeNumerator");
 	}
 
 	@Override
 	public Long getOperCycleTimeDenominator() throws CommsException {
 
-		Long denominator = 0L;
-
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
-
-			addSNMPUser(snmp);
-
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
-
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			pdu.add(new VariableBinding(new OID("1.3.111.2.802.1.1.30.1.2.1.1.11.1." + portNumber.toString())));
-			pdu.setType(ScopedPDU.GET);
-
-			ResponseEvent response = snmp.get(pdu, target);
-
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
-
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
-
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-						denominator = responsePDU.getVariableBindings().get(0).getVariable().toLong();
-
-					} else {
-
-						throw new PDUErrorException("getOperCycleTimeDenominator | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("getOperCycleTimeDenominator");
-				}
-			} else {
-				throw new ResponseNullException("getOperCycleTimeDenominator");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
-		}
-		return denominator;
+		PDU responsePDU = get(OIDCatalogue.qbv(OIDCatalogue.OPER_CYCLE_TIME_DENOMINATOR, portNumber),
+				"getOperCycleTimeDenominator");
+		return responsePDU.getVariableBindings().get(0).getVariable().toLong();
 	}
 
 	@Override
 	public void setAdminCycleTimeDenominator(Long cycleTimeDenominator) throws CommsException {
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
 
-			SecurityProtocols sp = makeSecurityProtocols();
+		set(OIDCatalogue.qbv(OIDCatalogue.ADMIN_CYCLE_TIME_DENOMINATOR, portNumber),
+				new UnsignedInteger32(cycleTimeDenominator), "setAdminCycleTimeDenominator");
+	}
 
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
+	@Override
+	public Long getOperCycleTimeExtension() throws CommsException {
 
-			addSNMPUser(snmp);
+		PDU responsePDU = get(OIDCatalogue.qbv(OIDCatalogue.OPER_CYCLE_TIME_EXTENSION, portNumber),
+				"getOperCycleTimeExtension");
+		return responsePDU.getVariableBindings().get(0).getVariable().toLong();
+	}
 
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
+	@Override
+	public void setAdminCycleTimeExtension(Long cycleTimeExtension) throws CommsException {
 
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			OID oid = new OID("1.3.111.2.802.1.1.30.1.2.1.1.9.1." + portNumber.toString());
-			VariableBinding varBind = new VariableBinding(oid, new UnsignedInteger32(cycleTimeDenominator));
-			pdu.add(varBind);
-			pdu.setType(PDU.SET);
+		set(OIDCatalogue.qbv(OIDCatalogue.ADMIN_CYCLE_TIME_EXTENSION, portNumber),
+				new UnsignedInteger32(cycleTimeExtension), "setAdminCycleTimeExtension");
+	}
 
-			ResponseEvent response = snmp.set(pdu, target);
+	@Override
+	public PTPTimeTuple getOperBaseTime() throws CommsException {
 
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
+		PDU responsePDU = get(OIDCatalogue.qbv(OIDCatalogue.OPER_BASE_TIME, portNumber),
+				"getOperBaseTime");
+		return decodePTPTime(responsePDU.getVariableBindings().get(0).getVariable());
+	}
 
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
+	@Override
+	public void setAdminBaseTime(PTPTimeTuple timeTuple) throws CommsException {
 
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-					} else {
+		set(OIDCatalogue.qbv(OIDCatalogue.ADMIN_BASE_TIME, portNumber),
+				encodePTPTime(timeTuple), "setAdminBaseTime");
+	}
 
-						throw new PDUErrorException("setAdminCycleTimeDenominator | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("setAdminCycleTimeDenominator");
-				}
-			} else {
-				throw new ResponseNullException("setAdminCycleTimeDenominator");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
-		}
+	@Override
+	public void setConfigChange() throws CommsException {
 
+		set(OIDCatalogue.qbv(OIDCatalogue.CONFIG_CHANGE, portNumber), new Integer32(1),
+				"setConfigChange");
 	}
 
 	@Override
-	public Long getOperCycleTimeExtension() throws CommsException {
+	public boolean getGateEnabled() throws CommsException {
 
-		Long extension = 0L;
+		PDU responsePDU = get(OIDCatalogue.qbv(OIDCatalogue.GATE_ENABLED, portNumber),
+				"getGateEnabled");
+		return decodeGateEnabled(responsePDU.getVariableBindings().get(0).getVariable());
+	}
 
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
+	@Override
+	public void setGateEnabled(boolean gateEnabled) throws CommsException {
 
-			SecurityProtocols sp = makeSecurityProtocols();
+		set(OIDCatalogue.qbv(OIDCatalogue.GATE_ENABLED, portNumber), encodeGateEnabled(gateEnabled),
+				"setGateEnabled");
+	}
 
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
+	@Override
+	public void setAdminParameters(QbvParametersTuple parameters) throws CommsException {
+		await(setAdminParametersAsync(parameters));
+	}
 
-			addSNMPUser(snmp);
+	@Override
+	public CompletableFuture<Void> setAdminParametersAsync(QbvParametersTuple parameters) {
+
+		ScopedPDU pdu = new ScopedPDU();
+		pdu.add(new VariableBinding(OIDCatalogue.qbv(OIDCatalogue.ADMIN_BASE_TIME, portNumber),
+				encodePTPTime(parameters.baseTime)));
+		pdu.add(new VariableBinding(OIDCatalogue.qbv(OIDCatalogue.ADMIN_CONTROL_LIST_LENGTH, portNumber),
+				new UnsignedInteger32(parameters.controlList.size())));
+		pdu.add(new VariableBinding(OIDCatalogue.qbv(OIDCatalogue.ADMIN_CONTROL_LIST, portNumber),
+				encodeControlList(parameters.controlList)));
+		pdu.add(new VariableBinding(OIDCatalogue.qbv(OIDCatalogue.ADMIN_CYCLE_TIME_NUMERATOR, portNumber),
+				new UnsignedInteger32(parameters.cycleTimeNumerator)));
+		pdu.add(new VariableBinding(OIDCatalogue.qbv(OIDCatalogue.ADMIN_CYCLE_TIME_DENOMINATOR, portNumber),
+				new UnsignedInteger32(parameters.cycleTimeDenominator)));
+		pdu.add(new VariableBinding(OIDCatalogue.qbv(OIDCatalogue.ADMIN_CYCLE_TIME_EXTENSION, portNumber),
+				new UnsignedInteger32(parameters.cycleTimeExtension)));
+		pdu.add(new VariableBinding(OIDCatalogue.qbv(OIDCatalogue.GATE_ENABLED, portNumber),
+				encodeGateEnabled(parameters.gateEnabled)));
+		pdu.add(new VariableBinding(OIDCatalogue.qbv(OIDCatalogue.CONFIG_CHANGE, portNumber), new Integer32(1)));
+		pdu.setType(PDU.SET);
+
+		return sendRequestAsync(pdu, "setAdminParameters").thenCompose(responsePDU -> {
+			// some switches refuse to trigger ConfigChange in the same request that
+			// writes the admin parameters. A SET is applied all or nothing, so nothing
+			// was written yet and the parameters can be sent again without the trigger.
+			if (isRefusedConfigChange(responsePDU, pdu.size())) {
+				logger.debug("setAdminParameters | ConfigChange rejected in combined SET, sending it separately");
+				ScopedPDU adminPDU = new ScopedPDU();
+				adminPDU.addAll(pdu.getVariableBindings().subList(0, pdu.size() - 1)); // without ConfigChange
+				adminPDU.setType(PDU.SET);
+				ScopedPDU configChangePDU = new ScopedPDU();
+				configChangePDU.add(pdu.get(pdu.size() - 1));
+				configChangePDU.setType(PDU.SET);
+				// the response is handled on the SNMP listener thread, sending may have to
+				// open a new session
+				return CompletableFuture.supplyAsync(() -> sendPDUAsync(adminPDU, "setAdminParameters")
+						.thenCompose(adminResponsePDU -> sendPDUAsync(configChangePDU, "setConfigChange")),
+						WebcncApplication.snmpSessionPool.getOpeningExecutor())
+						.thenCompose(configChangeResponse -> configChangeResponse)
+						.thenApply(configChangeResponsePDU -> null);
+			}
+			checkResponseAsync(responsePDU, "setAdminParameters");
+			return CompletableFuture.completedFuture(null);
+		});
+	}
 
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
+	/**
+	 * Checks if a switch refused the ConfigChange trigger of a combined SET. Only
+	 * the errors a switch answers for an object it doesn´t accept at this point
+	 * count, other errors like authorizationError or genErr are reported as they
+	 * are.
+	 * 
+	 * @param responsePDU       the response to the combined SET
+	 * @param configChangeIndex the index of the ConfigChange variable binding,
+	 *                          starting with 1
+	 * @return true if the combined SET failed only because of the trigger
+	 */
+	private static boolean isRefusedConfigChange(PDU responsePDU, int configChangeIndex) {
+		if (responsePDU.getErrorIndex() != configChangeIndex) {
+			return false;
+		}
+		int errorStatus = responsePDU.getErrorStatus();
+		return errorStatus == PDU.notWritable || errorStatus == PDU.wrongValue
+				|| errorStatus == PDU.inconsistentValue;
+	}
 
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			pdu.add(new VariableBinding(new OID("1.3.111.2.802.1.1.30.1.2.1.1.13.1." + portNumber.toString())));
-			pdu.setType(ScopedPDU.GET);
+	@Override
+	public String getSysname() throws CommsException {
+		return await(getSysnameAsync());
+	}
 
-			ResponseEvent response = snmp.get(pdu, target);
+	@Override
+	public CompletableFuture<String> getSysnameAsync() {
 
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
+		return getAsync(OIDCatalogue.sysName(), "getSysName")
+				.thenApply(responsePDU -> responsePDU.getVariableBindings().get(0).getVariable().toString());
+	}
 
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
+	@Override
+	public List<LLDPDataTuple> getLLDPRemData() throws CommsException {
+		return await(getLLDPRemDataAsync());
+	}
 
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-						extension = responsePDU.getVariableBindings().get(0).getVariable().toLong();
+	@Override
+	public CompletableFuture<List<LLDPDataTuple>> getLLDPRemDataAsync() {
 
-					} else {
+		OID[] columns = new OID[] { OIDCatalogue.lldpRemSysName(), OIDCatalogue.lldpRemPortId() };
 
-						throw new PDUErrorException("getOperCycleTimeExtension | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
+		return walkTableAsync(columns, ESTIMATED_LLDP_ROW_SIZE, "getLLDPRemSysNames").thenApply(events -> {
+			List<LLDPDataTuple> remData = new LinkedList<LLDPDataTuple>();
+			for (TableEvent event : events) {
+				if (event.isError()) {
+					logger.error("Error: " + event.getErrorMessage());
+					throw new CompletionException(
+							new PDUErrorException("getLLDPRemSysNames | " + event.getErrorMessage()));
 				} else {
-					throw new PDUNullException("getOperCycleTimeExtension");
-				}
-			} else {
-				throw new ResponseNullException("getOperCycleTimeExtension");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
+					VariableBinding sysNameBinding = event.getColumns()[0]; // lldpRemSysName
+					VariableBinding portIdBinding = event.getColumns()[1]; // lldpRemPortId
+					if (sysNameBinding != null && portIdBinding != null) {
+						LLDPDataTuple data = new LLDPDataTuple();
+						data.remSysName = sysNameBinding.getVariable().toString();
+						data.remPortId = portIdBinding.getVariable().toString();
+						// second last OID number is the local port number (used for indexing the lldp
+						// remote table rows)
+						data.localPortNumber = sysNameBinding.getOid().get(sysNameBinding.getOid().size() - 2);
+						remData.add(data);
+					}
 				}
 			}
-		}
-		return extension;
-
+			return remData;
+		});
 	}
 
 	@Override
-	public void setAdminCycleTimeExtension(Long cycleTimeExtension) throws CommsException {
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
+	public QbvParametersTuple getOperParameters() throws CommsException {
+		return await(getOperParametersAsync());
+	}
 
-			SecurityProtocols sp = makeSecurityProtocols();
+	@Override
+	public CompletableFuture<QbvParametersTuple> getOperParametersAsync() {
 
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
+		List<Integer> portNumbers = new LinkedList<Integer>();
+		portNumbers.add(portNumber);
+		return getOperParametersAsync(portNumbers).thenApply(parameters -> parameters.get(0));
+	}
 
-			addSNMPUser(snmp);
+	@Override
+	public List<QbvParametersTuple> getOperParameters(List<Integer> portNumbers) throws CommsException {
+		return await(getOperParametersAsync(portNumbers));
+	}
 
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
+	@Override
+	public List<QbvParametersTuple> getOperParameters(List<Integer> portNumbers,
+			Map<Integer, Long> controlListLengths) throws CommsException {
+		return await(getOperParametersAsync(portNumbers, controlListLengths));
+	}
 
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			OID oid = new OID("1.3.111.2.802.1.1.30.1.2.1.1.12.1." + portNumber.toString());
-			VariableBinding varBind = new VariableBinding(oid, new UnsignedInteger32(cycleTimeExtension));
-			pdu.add(varBind);
-			pdu.setType(PDU.SET);
+	@Override
+	public CompletableFuture<List<QbvParametersTuple>> getOperParametersAsync(List<Integer> portNumbers) {
+		return getOperParametersAsync(portNumbers, Collections.emptyMap());
+	}
 
-			ResponseEvent response = snmp.set(pdu, target);
+	@Override
+	public CompletableFuture<List<QbvParametersTuple>> getOperParametersAsync(List<Integer> portNumbers,
+			Map<Integer, Long> controlListLengths) {
 
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
+		return getPortColumnsAsync(portNumbers, OPER_PARAMETER_COLUMNS,
+				estimatedPortNumber -> estimateOperParametersSize(estimatedPortNumber,
+						controlListLengths.get(estimatedPortNumber)),
+				SNMPSwitchCommsCommunicator::decodeOperParameters, "getOperParameters");
+	}
 
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
+	@Override
+	public List<QbvChangeIndicatorsTuple> getQbvChangeIndicators(List<Integer> portNumbers) throws CommsException {
+		return await(getQbvChangeIndicatorsAsync(portNumbers));
+	}
 
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-					} else {
+	@Override
+	public CompletableFuture<List<QbvChangeIndicatorsTuple>> getQbvChangeIndicatorsAsync(List<Integer> portNumbers) {
 
-						throw new PDUErrorException("setAdminCycleTimeExtension | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("setAdminCycleTimeExtension");
-				}
-			} else {
-				throw new ResponseNullException("setAdminCycleTimeExtension");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
-		}
+		return getPortColumnsAsync(portNumbers, CHANGE_INDICATOR_COLUMNS,
+				SNMPSwitchCommsCommunicator::estimateChangeIndicatorsSize,
+				SNMPSwitchCommsCommunicator::decodeChangeIndicators, "getQbvChangeIndicators");
+	}
 
+	@Override
+	public Long getLLDPRemTablesLastChange() throws CommsException {
+		return await(getLLDPRemTablesLastChangeAsync());
 	}
 
 	@Override
-	public PTPTimeTuple getOperBaseTime() throws CommsException {
+	public CompletableFuture<Long> getLLDPRemTablesLastChangeAsync() {
+
+		return getAsync(OIDCatalogue.lldpStatsRemTablesLastChangeTime(), "getLLDPRemTablesLastChange")
+				.thenApply(responsePDU -> {
+					VariableBinding binding = responsePDU.getVariableBindings().get(0);
+					// switches without LLDP statistics report a missing object
+					if (binding.isException()) {
+						throw new CompletionException(new PDUErrorException(
+								"getLLDPRemTablesLastChange | " + binding.getOid() + " = " + binding.getVariable()));
+					}
+					return binding.getVariable().toLong();
+				});
+	}
 
-		PTPTimeTuple time = new PTPTimeTuple();
-		time.nanoseconds = 0L;
-		time.seconds = 0L;
+	/**
+	 * Reads some columns of several ports. The ports are packed into as few GET
+	 * requests as the message size of the switch allows and the requests are sent
+	 * concurrently.
+	 * 
+	 * @param portNumbers   the numbers of the ports to read
+	 * @param columns       the Qbv columns read per port
+	 * @param portSize      estimates the size of the response for one port
+	 * @param portDecoder   decodes the columns of one port
+	 * @param operation     the name of the calling operation, used in error
+	 *                      messages
+	 * @return a future of the decoded values of each port, in the order of
+	 *         portNumbers
+	 */
+	private <T> CompletableFuture<List<T>> getPortColumnsAsync(List<Integer> portNumbers, int[] columns,
+			ToIntFunction<Integer> portSize, PortDecoder<T> portDecoder, String operation) {
 
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
+		return acquireSessionAsync(operation).thenCompose(
+				session -> getPortColumnsAsync(session, portNumbers, columns, portSize, portDecoder, operation));
+	}
 
-			SecurityProtocols sp = makeSecurityProtocols();
+	/**
+	 * Reads some columns of several ports over an acquired session and releases
+	 * the session when all requests are answered
+	 * 
+	 * @param session     the acquired session of the switch
+	 * @param portNumbers the numbers of the ports to read
+	 * @param columns     the Qbv columns read per port
+	 * @param portSize    estimates the size of the response for one port
+	 * @param portDecoder decodes the columns of one port
+	 * @param operation   the name of the calling operation, used in error
+	 *                    messages
+	 * @return a future of the decoded values of each port, in the order of
+	 *         portNumbers
+	 */
+	private <T> CompletableFuture<List<T>> getPortColumnsAsync(SNMPSession session, List<Integer> portNumbers,
+			int[] columns, ToIntFunction<Integer> portSize, PortDecoder<T> portDecoder, String operation) {
+
+		// the session is held until all batches are answered, so a tooBig lowers the
+		// size limit of the session the batches were packed for
+		int maxPDUSize = session.getMaxResponsePDUSize();
+
+		// pack as many ports into one request as the expected response size allows
+		List<CompletableFuture<List<T>>> batches = new LinkedList<CompletableFuture<List<T>>>();
+		List<Integer> batch = new LinkedList<Integer>();
+		int batchSize = PDU_HEADER_SIZE;
+		for (Integer batchPortNumber : portNumbers) {
+			int batchPortSize = portSize.applyAsInt(batchPortNumber);
+			if (!batch.isEmpty() && batchSize + batchPortSize > maxPDUSize) {
+				batches.add(getPortColumnsBatch(session, batch, portSize, columns, portDecoder, operation));
+				batch = new LinkedList<Integer>();
+				batchSize = PDU_HEADER_SIZE;
+			}
+			batch.add(batchPortNumber);
+			batchSize += batchPortSize;
+		}
+		if (!batch.isEmpty()) {
+			batches.add(getPortColumnsBatch(session, batch, portSize, columns, portDecoder, operation));
+		}
 
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
+		// collect the results of all batches in the order of the ports
+		CompletableFuture<List<T>> values = CompletableFuture.completedFuture(new LinkedList<T>());
+		for (CompletableFuture<List<T>> batchValues : batches) {
+			values = values.thenCombine(batchValues, SNMPSwitchCommsCommunicator::concat);
+		}
+		return values.whenComplete((result, error) -> session.release());
+	}
 
-			addSNMPUser(snmp);
+	/**
+	 * Reads some columns of several ports with one GET request. If the switch
+	 * answers with tooBig, the batch is split in half and the learned response
+	 * size limit of the session is lowered.
+	 * 
+	 * The halves are sent from the opening executor of the session pool, since
+	 * the response is handled on the SNMP listener thread and sending may have to
+	 * open a new session.
+	 * 
+	 * @param session          the acquired session the batch was packed for
+	 * @param batchPortNumbers the ports to read
+	 * @param portSize         estimates the size of the response for one port
+	 * @param columns          the Qbv columns read per port
+	 * @param portDecoder      decodes the columns of one port
+	 * @param operation        the name of the calling operation, used in error
+	 *                         messages
+	 * @return a future of the decoded values of each port in the same order
+	 */
+	private <T> CompletableFuture<List<T>> getPortColumnsBatch(SNMPSession session, List<Integer> batchPortNumbers,
+			ToIntFunction<Integer> portSize, int[] columns, PortDecoder<T> portDecoder, String operation) {
+
+		ScopedPDU pdu = new ScopedPDU();
+		int estimatedSize = PDU_HEADER_SIZE;
+		for (Integer batchPortNumber : batchPortNumbers) {
+			estimatedSize += portSize.applyAsInt(batchPortNumber);
+			for (int column : columns) {
+				pdu.add(new VariableBinding(OIDCatalogue.qbv(column, batchPortNumber)));
+			}
+		}
+		pdu.setType(PDU.GET);
+
+		int tooBigSize = estimatedSize;
+		return sendRequestAsync(pdu, operation).thenCompose(responsePDU -> {
+
+			// response didn´t fit into one message, split the batch
+			if (responsePDU.getErrorStatus() == PDU.tooBig && batchPortNumbers.size() > 1) {
+				session.lowerMaxResponsePDUSize(tooBigSize);
+				int half = batchPortNumbers.size() / 2;
+				List<Integer> firstHalf = new LinkedList<Integer>(batchPortNumbers.subList(0, half));
+				List<Integer> secondHalf = new LinkedList<Integer>(
+						batchPortNumbers.subList(half, batchPortNumbers.size()));
+				return CompletableFuture.supplyAsync(() -> {
+					CompletableFuture<List<T>> firstValues = getPortColumnsBatch(session, firstHalf, portSize,
+							columns, portDecoder, operation);
+					CompletableFuture<List<T>> secondValues = getPortColumnsBatch(session, secondHalf, portSize,
+							columns, portDecoder, operation);
+					return firstValues.thenCombine(secondValues, SNMPSwitchCommsCommunicator::concat);
+				}, WebcncApplication.snmpSessionPool.getOpeningExecutor()).thenCompose(halves -> halves);
+			}
+			checkResponseAsync(responsePDU, operation);
+			return CompletableFuture
+					.completedFuture(decodePortColumns(responsePDU, batchPortNumbers, columns, portDecoder, operation));
+		});
+	}
 
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
+	/**
+	 * Decodes the response to a batched request of port columns
+	 * 
+	 * @param responsePDU      the error free response PDU
+	 * @param batchPortNumbers the ports that were requested
+	 * @param columns          the Qbv columns read per port
+	 * @param portDecoder      decodes the columns of one port
+	 * @param operation        the name of the calling operation, used in error
+	 *                         messages
+	 * @return the decoded values of each port in the same order
+	 * @throws CompletionException containing a PDUErrorException if the response
+	 *                             doesn´t contain all requested values
+	 */
+	private static <T> List<T> decodePortColumns(PDU responsePDU, List<Integer> batchPortNumbers, int[] columns,
+			PortDecoder<T> portDecoder, String operation) {
 
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			pdu.add(new VariableBinding(new OID("1.3.111.2.802.1.1.30.1.2.1.1.15.1." + portNumber.toString())));
-			pdu.setType(ScopedPDU.GET);
+		List<? extends VariableBinding> bindings = responsePDU.getVariableBindings();
+		if (bindings.size() != columns.length * batchPortNumbers.size()) {
+			throw new CompletionException(new PDUErrorException(operation + " | expected "
+					+ columns.length * batchPortNumbers.size() + " variable bindings, received " + bindings.size()));
+		}
+		// the switch reports missing objects per variable binding instead of an error status
+		for (VariableBinding binding : bindings) {
+			if (binding.isException()) {
+				throw new CompletionException(
+						new PDUErrorException(operation + " | " + binding.getOid() + " = " + binding.getVariable()));
+			}
+		}
 
-			ResponseEvent response = snmp.get(pdu, target);
+		List<T> values = new LinkedList<T>();
+		int offset = 0;
+		for (Integer batchPortNumber : batchPortNumbers) {
+			values.add(portDecoder.decode(bindings, offset, batchPortNumber));
+			offset += columns.length;
+		}
+		return values;
+	}
 
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
+	// decodes the OPER_PARAMETER_COLUMNS of one port
+	private static QbvParametersTuple decodeOperParameters(List<? extends VariableBinding> bindings, int offset,
+			Integer decodedPortNumber) {
+		QbvParametersTuple portParameters = new QbvParametersTuple();
+		portParameters.portNumber = decodedPortNumber;
+		portParameters.gateEnabled = decodeGateEnabled(bindings.get(offset).getVariable());
+		portParameters.cycleTimeNumerator = bindings.get(offset + 1).getVariable().toLong();
+		portParameters.cycleTimeDenominator = bindings.get(offset + 2).getVariable().toLong();
+		portParameters.cycleTimeExtension = bindings.get(offset + 3).getVariable().toLong();
+		portParameters.baseTime = decodePTPTime(bindings.get(offset + 4).getVariable());
+		portParameters.controlList = decodeControlList(bindings.get(offset + 5).getVariable());
+		return portParameters;
+	}
 
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
+	// decodes the CHANGE_INDICATOR_COLUMNS of one port
+	private static QbvChangeIndicatorsTuple decodeChangeIndicators(List<? extends VariableBinding> bindings,
+			int offset, Integer decodedPortNumber) {
+		QbvChangeIndicatorsTuple indicators = new QbvChangeIndicatorsTuple();
+		indicators.portNumber = decodedPortNumber;
+		indicators.gateEnabled = decodeGateEnabled(bindings.get(offset).getVariable());
+		indicators.configChangeTime = decodePTPTime(bindings.get(offset + 1).getVariable());
+		indicators.configPending = bindings.get(offset + 2).getVariable().toInt() == 1; // TruthValue true
+		indicators.operControlListLength = bindings.get(offset + 3).getVariable().toLong();
+		return indicators;
+	}
 
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-						OctetString octetStringResponse = (OctetString) responsePDU.getVariableBindings().get(0)
-								.getVariable();
-						byte[] reponseTime = octetStringResponse.getValue();
+	// appends the values of the second batch to the first one
+	private static <T> List<T> concat(List<T> first, List<T> second) {
+		List<T> values = new LinkedList<T>(first);
+		values.addAll(second);
+		return values;
+	}
 
-						// extract seconds and nanoseconds from response
-						long seconds = 0;
-						for (int i = 0; i < 6; i++) {
-							seconds = (seconds << 8) | (reponseTime[i] & 0xFF);
-						}
-						// Extract nanoseconds from response
-						Long nanoseconds = 0L;
-						for (int i = 6; i < 10; i++) {
-							nanoseconds = (nanoseconds << 8) | (reponseTime[i] & 0xFF);
-						}
-						time.nanoseconds = nanoseconds;
-						time.seconds = seconds;
+	/**
+	 * Estimates the size of the variable bindings that the switch returns for the
+	 * operational Qbv parameters of one port
+	 * 
+	 * @param estimatedPortNumber the number of the port
+	 * @param controlListLength   the known operControlListLength of the port, or
+	 *                            null to assume ESTIMATED_CONTROL_LIST_LENGTH
+	 * @return the estimated size in bytes
+	 */
+	private static int estimateOperParametersSize(Integer estimatedPortNumber, Long controlListLength) {
+		// each OID has 14 sub-identifiers plus the port number, values are encoded
+		// with up to 6 bytes for integers, 12 bytes for the base time and 7 bytes
+		// per control list entry
+		long entries = controlListLength == null ? ESTIMATED_CONTROL_LIST_LENGTH
+				: Math.min(controlListLength, GCLCodec.MAX_ENTRIES);
+		int oidSize = 18 + subIdentifierLength(estimatedPortNumber);
+		int valuesSize = 3 + 3 * 7 + 12 + 4 + 7 * (int) entries;
+		return OPER_PARAMETER_COLUMNS.length * (oidSize + 4) + valuesSize;
+	}
 
-					} else {
+	/**
+	 * Estimates the size of the variable bindings that the switch returns for the
+	 * change indicators of one port
+	 * 
+	 * @param estimatedPortNumber the number of the port
+	 * @return the estimated size in bytes
+	 */
+	private static int estimateChangeIndicatorsSize(Integer estimatedPortNumber) {
+		// two truth values, the change time and the list length
+		int oidSize = 18 + subIdentifierLength(estimatedPortNumber);
+		int valuesSize = 3 + 12 + 3 + 7;
+		return CHANGE_INDICATOR_COLUMNS.length * (oidSize + 4) + valuesSize;
+	}
 
-						throw new PDUErrorException("getOperBaseTime | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("getOperBaseTime");
-				}
-			} else {
-				throw new ResponseNullException("getOperBaseTime");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
+	// the number of bytes of a sub-identifier in BER, 7 bits per byte
+	private static int subIdentifierLength(int subIdentifier) {
+		int length = 1;
+		for (int rest = subIdentifier >>> 7; rest != 0; rest >>>= 7) {
+			length++;
 		}
-		return time;
+		return length;
 	}
 
-	@Override
-	public void setAdminBaseTime(PTPTimeTuple timeTuple) throws CommsException {
+	/**
+	 * Encodes a gate control list as the TLVs of an AdminControlList
+	 * 
+	 * @param gcl the gate control list to encode
+	 * @return the OctetString containing one 7 byte TLV per entry
+	 */
+	private static OctetString encodeControlList(List<GCLEntry> gcl) {
+		return new OctetString(GCLCodec.encode(gcl));
+	}
+
+	/**
+	 * Encodes a PTPTimeTuple as the 10 byte PTP time of an AdminBaseTime
+	 * 
+	 * @param timeTuple the seconds and nanoseconds to encode
+	 * @return the OctetString containing 48 bit seconds and 32 bit nanoseconds
+	 */
+	private static OctetString encodePTPTime(PTPTimeTuple timeTuple) {
 
 		long seconds = timeTuple.seconds;
 		long nanoseconds = timeTuple.nanoseconds;
@@ -872,393 +694,413 @@ public class SNMPSwitchCommsCommunicator implements ISwitchCommsCommunicator {
 		// Add lower 32 bits of nanoseconds to byte buffer
 		bytesToSet.putInt(6, (int) (nanoseconds & 0xFFFFFFFFL));
 
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
-
-			addSNMPUser(snmp);
-
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
-
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			OID oid = new OID("1.3.111.2.802.1.1.30.1.2.1.1.14.1." + portNumber.toString());
-			VariableBinding varBind = new VariableBinding(oid, new OctetString(bytesToSet.array()));
-			pdu.add(varBind);
-			pdu.setType(PDU.SET);
-
-			ResponseEvent response = snmp.set(pdu, target);
-
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
-
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
-
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-					} else {
+		return new OctetString(bytesToSet.array());
+	}
 
-						throw new PDUErrorException("setAdminBaseTime | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("setAdminBaseTime");
-				}
-			} else {
-				throw new ResponseNullException("setAdminBaseTime");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
+	/**
+	 * Encodes the gateEnabled value as the TruthValue used by the switch
+	 * 
+	 * @param gateEnabled true if the gates are enabled
+	 * @return Integer32 containing 1 for true and 2 for false
+	 */
+	private static Integer32 encodeGateEnabled(boolean gateEnabled) {
+		if (gateEnabled) {
+			return new Integer32(1);
+		} else {
+			return new Integer32(2);
 		}
-
 	}
 
-	@Override
-	public void setConfigChange() throws CommsException {
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
-
-			addSNMPUser(snmp);
-
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
-
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			OID oid = new OID("1.3.111.2.802.1.1.30.1.2.1.1.16.1." + portNumber.toString());
-			VariableBinding varBind = new VariableBinding(oid, new Integer32(1));
-			pdu.add(varBind);
-			pdu.setType(PDU.SET);
-
-			ResponseEvent response = snmp.set(pdu, target);
+	/**
+	 * Decodes the TLVs of an OperControlList or AdminControlList value into
+	 * GCLEntries
+	 * 
+	 * @param variable the OctetString received from the switch
+	 * @return a List of GCLEntries representing the gate control list
+	 */
+	private static List<GCLEntry> decodeControlList(Variable variable) {
+		return GCLCodec.decode(ByteBuffer.wrap(((OctetString) variable).getValue()));
+	}
 
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
+	/**
+	 * Decodes a PTPTimeValue as used by OperBaseTime and AdminBaseTime
+	 * 
+	 * @param variable the OctetString received from the switch
+	 * @return PTPTimeTuple containing the seconds and nanoseconds of the value
+	 */
+	private static PTPTimeTuple decodePTPTime(Variable variable) {
 
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
+		PTPTimeTuple time = new PTPTimeTuple();
 
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-					} else {
+		OctetString octetStringResponse = (OctetString) variable;
+		byte[] reponseTime = octetStringResponse.getValue();
 
-						throw new PDUErrorException("setConfigChange | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("setConfigChange");
-				}
-			} else {
-				throw new ResponseNullException("setConfigChange");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
+		// extract seconds and nanoseconds from response
+		long seconds = 0;
+		for (int i = 0; i < 6; i++) {
+			seconds = (seconds << 8) | (reponseTime[i] & 0xFF);
 		}
+		// Extract nanoseconds from response
+		Long nanoseconds = 0L;
+		for (int i = 6; i < 10; i++) {
+			nanoseconds = (nanoseconds << 8) | (reponseTime[i] & 0xFF);
+		}
+		time.nanoseconds = nanoseconds;
+		time.seconds = seconds;
 
+		return time;
 	}
-	
-	@Override
-	public boolean getGateEnabled() throws CommsException {
-		
-		boolean gateEnabled = false;
-		
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
 
-			addSNMPUser(snmp);
+	/**
+	 * Decodes the TruthValue of the GateEnabled parameter
+	 * 
+	 * @param variable the Integer32 received from the switch
+	 * @return true if the value is 1 (true), false else
+	 */
+	private static boolean decodeGateEnabled(Variable variable) {
+		Integer gateEnabledInt = variable.toInt();
+		if (gateEnabledInt == 1) {
+			return true;
+		} else {
+			return false;
+		}
+	}
 
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
+	/**
+	 * Sends a GET request for a single OID to the switch
+	 * 
+	 * @param oid       the OID to read
+	 * @param operation the name of the calling operation, used in error messages
+	 * @return the response PDU, which is guaranteed to contain no error
+	 * @throws CommsException If the switch can´t be reached or answers with an
+	 *                        error
+	 */
+	private PDU get(OID oid, String operation) throws CommsException {
+		return await(getAsync(oid, operation));
+	}
 
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			pdu.add(new VariableBinding(new OID("1.3.111.2.802.1.1.30.1.2.1.1.1.1." + portNumber.toString())));
-			pdu.setType(ScopedPDU.GET);
+	/**
+	 * Sends a GET request for a single OID to the switch without blocking
+	 * 
+	 * @param oid       the OID to read
+	 * @param operation the name of the calling operation, used in error messages
+	 * @return a future of the response PDU, which is guaranteed to contain no
+	 *         error
+	 */
+	private CompletableFuture<PDU> getAsync(OID oid, String operation) {
+		ScopedPDU pdu = new ScopedPDU();
+		pdu.add(new VariableBinding(oid));
+		pdu.setType(PDU.GET);
+		return sendPDUAsync(pdu, operation);
+	}
 
-			ResponseEvent response = snmp.get(pdu, target);
+	/**
+	 * Sends a SET request for a single OID to the switch
+	 * 
+	 * @param oid       the OID to write
+	 * @param value     the value to set
+	 * @param operation the name of the calling operation, used in error messages
+	 * @throws CommsException If the switch can´t be reached or answers with an
+	 *                        error
+	 */
+	private void set(OID oid, Variable value, String operation) throws CommsException {
+		ScopedPDU pdu = new ScopedPDU();
+		pdu.add(new VariableBinding(oid, value));
+		pdu.setType(PDU.SET);
+		await(sendPDUAsync(pdu, operation));
+	}
 
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
+	/**
+	 * Retrieves the specified columns of a table from the switch. GETBULK is used
+	 * with as many rows per request as fit into the response size of the switch.
+	 * If the switch rejects GETBULK, the walk is repeated with GETNEXT and later
+	 * walks on the same session use GETNEXT right away.
+	 * 
+	 * @param columns          the OIDs of the table columns to retrieve
+	 * @param estimatedRowSize the estimated size of one row of the columns in
+	 *                         bytes
+	 * @param operation        the name of the calling operation, used in error
+	 *                         messages
+	 * @return a future of a TableEvent for each row of the table, followed by an
+	 *         error event if the walk failed
+	 */
+	private CompletableFuture<List<TableEvent>> walkTableAsync(OID[] columns, int estimatedRowSize,
+			String operation) {
 
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
+		return acquireSessionAsync(operation)
+				.thenCompose(session -> walkTableAsync(session, columns, estimatedRowSize, operation));
+	}
 
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-						Integer gateEnabledInt = responsePDU.getVariableBindings().get(0).getVariable().toInt();
-						if(gateEnabledInt == 1) {
-							gateEnabled = true;
-						}
-						else {
-							gateEnabled = false;
+	/**
+	 * Retrieves the specified columns of a table over an acquired session and
+	 * releases the session when the walk is finished
+	 * 
+	 * @param session          the acquired session of the switch
+	 * @param columns          the OIDs of the table columns to retrieve
+	 * @param estimatedRowSize the estimated size of one row of the columns in
+	 *                         bytes
+	 * @param operation        the name of the calling operation, used in error
+	 *                         messages
+	 * @return a future of a TableEvent for each row of the table, followed by an
+	 *         error event if the walk failed
+	 */
+	private CompletableFuture<List<TableEvent>> walkTableAsync(SNMPSession session, OID[] columns,
+			int estimatedRowSize, String operation) {
+
+		CompletableFuture<List<TableEvent>> events;
+		if (session.isBulkSupported()) {
+			int maxRepetitions = (session.getMaxResponsePDUSize() - PDU_HEADER_SIZE) / estimatedRowSize;
+			events = walkTableAsync(session, columns, PDU.GETBULK, Math.max(1, maxRepetitions))
+					.thenCompose(bulkEvents -> {
+						// a positive status is the error status the switch answered with
+						if (bulkEvents.isEmpty() || bulkEvents.get(bulkEvents.size() - 1).getStatus() <= 0) {
+							return CompletableFuture.completedFuture(bulkEvents);
 						}
-
-					} else {
-
-						throw new PDUErrorException("getGateEnabled | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("getGateEnabled");
-				}
-			} else {
-				throw new ResponseNullException("getGateEnabled");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
-			}
+						logger.info(operation + " | GETBULK rejected by " + sessionKey + " ("
+								+ bulkEvents.get(bulkEvents.size() - 1).getErrorMessage()
+								+ "), falling back to GETNEXT");
+						session.setBulkSupported(false);
+						return walkTableAsync(session, columns, PDU.GETNEXT, 1);
+					});
+		} else {
+			events = walkTableAsync(session, columns, PDU.GETNEXT, 1);
 		}
-		return gateEnabled;
-
+		return events.whenComplete((result, error) -> session.release());
 	}
 
-	@Override
-	public void setGateEnabled(boolean gateEnabled) throws CommsException {
-		Integer32 value;
-		if(gateEnabled) {
-			value = new Integer32(1);
-		}
-		else {
-			value = new Integer32(2);
-		}
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
-
-			addSNMPUser(snmp);
-
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
-
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			OID oid = new OID("1.3.111.2.802.1.1.30.1.2.1.1.1.1." + portNumber.toString());
-			VariableBinding varBind = new VariableBinding(oid, value);
-			pdu.add(varBind);
-			pdu.setType(PDU.SET);
-
-			ResponseEvent response = snmp.set(pdu, target);
-
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
-
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
-
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-					} else {
-
-						throw new PDUErrorException("setGateEnabled | Error Status = " + errorStatus
-								+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText);
-					}
-				} else {
-					throw new PDUNullException("setGateEnabled");
-				}
-			} else {
-				throw new ResponseNullException("setGateEnabled");
+	/**
+	 * Retrieves the specified columns of a table from the switch with one PDU type
+	 * 
+	 * @param session    the acquired session of the switch
+	 * @param columns    the OIDs of the table columns to retrieve
+	 * @param pduType    PDU.GETBULK or PDU.GETNEXT
+	 * @param rowsPerPDU the max-repetitions of GETBULK requests
+	 * @return a future of a TableEvent for each row of the table, followed by an
+	 *         error event if the walk failed
+	 */
+	private static CompletableFuture<List<TableEvent>> walkTableAsync(SNMPSession session, OID[] columns,
+			int pduType, int rowsPerPDU) {
+
+		CompletableFuture<List<TableEvent>> future = new CompletableFuture<List<TableEvent>>();
+		List<TableEvent> events = new LinkedList<TableEvent>();
+		TableUtils tableUtils = new TableUtils(session.getSnmp(), new tablePDUFactory(pduType));
+		tableUtils.setMaxNumRowsPerPDU(rowsPerPDU);
+		// the requests of a walk are sent one after another, so the walk takes one
+		// place of the request window until it is finished
+		RequestWindow window = session.getRequestWindow();
+		window.submit(() -> tableUtils.getTable(session.getTarget(), columns, new TableListener() {
+
+			private volatile boolean finished = false;
+
+			@Override
+			public boolean next(TableEvent event) {
+				events.add(event);
+				return true;
 			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
+
+			@Override
+			public void finished(TableEvent event) {
+				// the final event only carries information if the walk failed
+				if (event.isError()) {
+					events.add(event);
 				}
+				finished = true;
+				window.complete();
+				future.complete(events);
 			}
-		}
 
+			@Override
+			public boolean isFinished() {
+				return finished;
+			}
+		}, null, null, null));
+		return future;
 	}
 
-	@Override
-	public String getSysname() throws CommsException {
-
-		String sysName = "";
-		Snmp snmp = null;
-		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
-
-			addSNMPUser(snmp);
-
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
+	/**
+	 * Sends a PDU over the pooled session of the switch without blocking and
+	 * checks the response for errors
+	 * 
+	 * @param pdu       the PDU to send
+	 * @param operation the name of the calling operation, used in error messages
+	 * @return a future of the response PDU, which is guaranteed to contain no
+	 *         error
+	 */
+	private CompletableFuture<PDU> sendPDUAsync(ScopedPDU pdu, String operation) {
+		return sendRequestAsync(pdu, operation).thenApply(responsePDU -> {
+			checkResponseAsync(responsePDU, operation);
+			return responsePDU;
+		});
+	}
 
-			// Create PDU
-			ScopedPDU pdu = new ScopedPDU();
-			pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.1.5.0")));
-			pdu.setType(ScopedPDU.GET);
+	/**
+	 * Sends a PDU over the pooled session of the switch without blocking and
+	 * without checking the error status of the response
+	 * 
+	 * The future is completed exceptionally with a ResponseNullException if the
+	 * request can´t be sent and with a PDUNullException if the switch doesn´t
+	 * answer in time
+	 * 
+	 * If the switch answers with a notInTimeWindow or unknownEngineID report, the
+	 * cached engine ID of the switch is discarded and the request is sent once
+	 * more after a new discovery
+	 * 
+	 * @param pdu       the PDU to send
+	 * @param operation the name of the calling operation, used in error messages
+	 * @return a future of the response PDU
+	 */
+	private CompletableFuture<PDU> sendRequestAsync(ScopedPDU pdu, String operation) {
 
-			ResponseEvent response = snmp.get(pdu, target);
+		return sendOnceAsync(pdu, operation).thenCompose(responsePDU -> {
+			if (!isEngineReport(responsePDU)) {
+				return CompletableFuture.completedFuture(responsePDU);
+			}
+			logger.info(operation + " | " + sessionKey + " reported " + responsePDU.get(0).getOid()
+					+ ", discovering engine ID again");
+			// the discovery blocks until the switch answers, so it must not run on the
+			// SNMP listener thread that completed this future
+			return CompletableFuture.supplyAsync(() -> {
+				WebcncApplication.snmpSessionPool.invalidateEngineID(sessionKey);
+				pdu.setRequestID(new Integer32(0)); // let snmp4j assign a new request id
+				return sendOnceAsync(pdu, operation);
+			}, WebcncApplication.snmpSessionPool.getOpeningExecutor()).thenCompose(retry -> retry);
+		});
+	}
 
-			// Process Agent Response
-			if (response != null) {
-				PDU responsePDU = response.getResponse();
+	/**
+	 * Checks if a response is a report about an outdated engine ID or engine time
+	 * 
+	 * @param responsePDU the response PDU to check
+	 * @return true if the response is a notInTimeWindow or unknownEngineID report
+	 */
+	private static boolean isEngineReport(PDU responsePDU) {
+		if (responsePDU.getType() != PDU.REPORT || responsePDU.size() == 0) {
+			return false;
+		}
+		OID reportOID = responsePDU.get(0).getOid();
+		return reportOID.startsWith(SnmpConstants.usmStatsNotInTimeWindows)
+				|| reportOID.startsWith(SnmpConstants.usmStatsUnknownEngineIDs);
+	}
 
-				if (responsePDU != null) {
-					int errorStatus = responsePDU.getErrorStatus();
-					int errorIndex = responsePDU.getErrorIndex();
-					String errorStatusText = responsePDU.getErrorStatusText();
+	/**
+	 * Sends a PDU over the pooled session of the switch once without blocking
+	 * 
+	 * @param pdu       the PDU to send
+	 * @param operation the name of the calling operation, used in error messages
+	 * @return a future of the response PDU
+	 */
+	private CompletableFuture<PDU> sendOnceAsync(ScopedPDU pdu, String operation) {
+		return acquireSessionAsync(operation).thenCompose(session -> sendOnceAsync(session, pdu, operation));
+	}
 
-					if (errorStatus == PDU.noError) {
-						logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
-						sysName = responsePDU.getVariableBindings().get(0).getVariable().toString();
+	/**
+	 * Sends a PDU over an acquired session once without blocking and releases the
+	 * session when the response arrived
+	 * 
+	 * @param session   the acquired session of the switch
+	 * @param pdu       the PDU to send
+	 * @param operation the name of the calling operation, used in error messages
+	 * @return a future of the response PDU
+	 */
+	private CompletableFuture<PDU> sendOnceAsync(SNMPSession session, ScopedPDU pdu, String operation) {
+
+		CompletableFuture<PDU> future = new CompletableFuture<PDU>();
+		RequestWindow window = session.getRequestWindow();
+		// the target is created when the request leaves the window, so the timeout is
+		// up to date
+		window.submit(() -> {
+			UserTarget<UdpAddress> target = session.getTarget();
+			ResponseListener listener = new ResponseListener() {
+				@Override
+				public <A extends Address> void onResponse(ResponseEvent<A> response) {
+					// the listener has to be removed from the Snmp instance after the response
+					((Snmp) response.getSource()).cancel(response.getRequest(), this);
+					window.complete();
+					session.release();
+
+					// Process Agent Response
+					PDU responsePDU = response.getResponse();
+					if (responsePDU != null) {
+						session.recordResponse(response.getDurationNanos(), target.getTimeout());
+						future.complete(responsePDU);
+					} else if (response.getError() != null) {
+						logger.catching(response.getError());
+						future.completeExceptionally(new ResponseNullException(operation));
 					} else {
-
-						throw new PDUErrorException("getSysName | Error Status = " + errorStatus + " | Error index = "
-								+ errorIndex + " | Error Status Text = " + errorStatusText);
+						session.recordTimeout();
+						future.completeExceptionally(new PDUNullException(operation));
 					}
-				} else {
-					throw new PDUNullException("getSysName");
-				}
-			} else {
-				throw new ResponseNullException("getSysName");
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
 				}
+			};
+
+			try {
+				session.getSnmp().send(pdu, target, null, listener);
+			} catch (IOException e) {
+				// the transport is broken, make sure the next request opens a new session
+				logger.catching(e);
+				window.complete();
+				session.release();
+				WebcncApplication.snmpSessionPool.invalidateSession(sessionKey);
+				future.completeExceptionally(new ResponseNullException(operation));
 			}
-		}
-		return sysName;
+		});
+		return future;
 	}
 
-	@Override
-	public List<LLDPDataTuple> getLLDPRemData() throws CommsException {
+	/**
+	 * Checks the error status of a response PDU inside of a future
+	 * 
+	 * @param responsePDU the response PDU to check
+	 * @param operation   the name of the calling operation, used in error messages
+	 * @throws CompletionException containing a PDUErrorException If the response
+	 *                             PDU contains an error
+	 */
+	private static void checkResponseAsync(PDU responsePDU, String operation) {
+		int errorStatus = responsePDU.getErrorStatus();
+		int errorIndex = responsePDU.getErrorIndex();
+		String errorStatusText = responsePDU.getErrorStatusText();
 
-		List<LLDPDataTuple> remData = new LinkedList<LLDPDataTuple>();
+		if (errorStatus == PDU.noError) {
+			logger.debug("Snmp Response = " + responsePDU.getVariableBindings());
+		} else {
+			throw new CompletionException(new PDUErrorException(operation + " | Error Status = " + errorStatus
+					+ " | Error index = " + errorIndex + " | Error Status Text = " + errorStatusText));
+		}
+	}
 
-		Snmp snmp = null;
+	/**
+	 * Waits for a future and unwraps the CommsException it was completed with
+	 * 
+	 * @param <T>    the type of the result
+	 * @param future the future to wait for
+	 * @return the result of the future
+	 * @throws CommsException If the future was completed with a CommsException
+	 */
+	private static <T> T await(CompletableFuture<T> future) throws CommsException {
 		try {
-			TransportMapping<UdpAddress> transport = new DefaultUdpTransportMapping();
-			snmp = new Snmp(transport);
-
-			SecurityProtocols sp = makeSecurityProtocols();
-
-			USM users = new USM(sp, new OctetString(MPv3.createLocalEngineID()), 0);
-			SecurityModels.getInstance().addSecurityModel(users);
-
-			addSNMPUser(snmp);
-
-			// Set the target and listen to responses
-			UserTarget target = makeNewTarget();
-			snmp.listen();
-
-			// OIDs for lldpRemSysName and lldpRemPortId
-			OID[] columns = new OID[] { new OID("1.0.8802.1.1.2.1.4.1.1.9"), new OID("1.0.8802.1.1.2.1.4.1.1.7") };
-			TableUtils tableUtils = new TableUtils(snmp, new tablePDUFactory());
-			List<TableEvent> events = tableUtils.getTable(target, columns, null, null);
-
-			for (TableEvent event : events) {
-				if (event.isError()) {
-					logger.error("Error: " + event.getErrorMessage());
-					throw new PDUErrorException("getLLDPRemSysNames | " + event.getErrorMessage());
-				} else {
-					VariableBinding sysNameBinding = event.getColumns()[0]; // lldpRemSysName
-					VariableBinding portIdBinding = event.getColumns()[1]; // lldpRemPortId
-					if (sysNameBinding != null && portIdBinding != null) {
-						LLDPDataTuple data = new LLDPDataTuple();
-						data.remSysName = sysNameBinding.getVariable().toString();
-						data.remPortId = portIdBinding.getVariable().toString();
-						// second last OID number is the local port number (used for indexing the lldp
-						// remote table rows)
-						data.localPortNumber = sysNameBinding.getOid().get(sysNameBinding.getOid().size() - 2);
-						remData.add(data);
-					}
-				}
-			}
-		} catch (IOException e) {
-			logger.catching(e);
-		} finally {
-			if (snmp != null) {
-				try {
-					snmp.close();
-				} catch (IOException e) {
-					logger.catching(e);
-				}
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof CommsException) {
+				throw (CommsException) e.getCause();
 			}
+			throw e;
 		}
-		return remData;
+	}
+
+	/**
+	 * Takes the session of the switch from the session pool without blocking. A
+	 * new session is opened on the opening executor of the pool. The session has
+	 * to be released after use.
+	 * 
+	 * @param operation the name of the calling operation, used in error messages
+	 * @return a future of the session of the switch, completed exceptionally with
+	 *         a ResponseNullException if no session can be opened
+	 */
+	private CompletableFuture<SNMPSession> acquireSessionAsync(String operation) {
+		return WebcncApplication.snmpSessionPool.acquireSessionAsync(sessionKey).exceptionally(error -> {
+			logger.catching(error instanceof CompletionException ? error.getCause() : error);
+			throw new CompletionException(new ResponseNullException(operation));
+		});
 	}
 
 	/**
@@ -1293,59 +1135,32 @@ public class SNMPSwitchCommsCommunicator implements ISwitchCommsCommunicator {
 		return true;
 	}
 
-	private SecurityProtocols makeSecurityProtocols() {
-		// activate appropriate security protocol
-		SecurityProtocols sp = SecurityProtocols.getInstance();
-		if (authAlgorithm == AuthAlgorithm.MD5) {
-			sp.addAuthenticationProtocol(new AuthMD5());
-		} else {
-			sp.addAuthenticationProtocol(new AuthSHA());
-		}
-		return sp;
-	}
-
-	private UserTarget makeNewTarget() {
-		UserTarget target = new UserTarget();
-		target.setAddress(GenericAddress.parse("udp:" + ipAddress + "/" + snmpPort.toString()));
-		target.setVersion(SnmpConstants.version3);
-		target.setSecurityLevel(SecurityLevel.AUTH_PRIV);
-		target.setSecurityName(new OctetString(authUserName));
-		target.setRetries(WebcncApplication.switchConnectionRetries);
-		target.setTimeout(WebcncApplication.switchConnectionTimeout);
-		return target;
-	}
-
-	private void addSNMPUser(Snmp snmp) {
-		// add user depending on which authentification and encryption variant is used
-		if (authAlgorithm == AuthAlgorithm.MD5 && encryptAlgorithm == EncryptionAlgorithm.DES) {
-			snmp.getUSM().addUser(new OctetString(authUserName), new UsmUser(new OctetString(authUserName), AuthMD5.ID,
-					new OctetString(authPassword), PrivDES.ID, new OctetString(encryptPassword)));
-		} else if (authAlgorithm == AuthAlgorithm.MD5 && encryptAlgorithm == EncryptionAlgorithm.AES128) {
-			snmp.getUSM().addUser(new OctetString(authUserName), new UsmUser(new OctetString(authUserName), AuthMD5.ID,
-					new OctetString(authPassword), PrivAES128.ID, new OctetString(encryptPassword)));
-		} else if (authAlgorithm == AuthAlgorithm.SHA1 && encryptAlgorithm == EncryptionAlgorithm.DES) {
-			snmp.getUSM().addUser(new OctetString(authUserName), new UsmUser(new OctetString(authUserName), AuthSHA.ID,
-					new OctetString(authPassword), PrivDES.ID, new OctetString(encryptPassword)));
-		} else if (authAlgorithm == AuthAlgorithm.SHA1 && encryptAlgorithm == EncryptionAlgorithm.AES128) {
-			snmp.getUSM().addUser(new OctetString(authUserName), new UsmUser(new OctetString(authUserName), AuthSHA.ID,
-					new OctetString(authPassword), PrivAES128.ID, new OctetString(encryptPassword)));
-		}
+	// decodes the columns of one port from the variable bindings of a batched request
+	private interface PortDecoder<T> {
+
+		T decode(List<? extends VariableBinding> bindings, int offset, Integer decodedPortNumber);
 	}
 
-	// factory to make new PDUs for retrieving LLDPRemTable data
+	// factory to make new PDUs for retrieving table data
 	private static class tablePDUFactory implements PDUFactory {
 
+		private final int pduType;
+
+		tablePDUFactory(int pduType) {
+			this.pduType = pduType;
+		}
+
 		@Override
 		public PDU createPDU(org.snmp4j.Target<?> target) {
 			PDU pdu = new ScopedPDU();
-			pdu.setType(PDU.GETNEXT);
+			pdu.setType(pduType);
 			return pdu;
 		}
 
 		@Override
 		public PDU createPDU(MessageProcessingModel messageProcessingModel) {
 			PDU pdu = new ScopedPDU();
-			pdu.setType(PDU.GETNEXT);
+			pdu.setType(pduType);
 			return pdu;
 		}
 
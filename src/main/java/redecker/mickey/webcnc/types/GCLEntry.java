@@ -1,8 +1,12 @@
 package redecker.mickey.webcnc.types;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * 
  * 
@@ -12,15 +16,23 @@ import java.util.List;
  * 
  *         It contains a random identifier, a list of gate states and the time
  *         how long the entry will be active per cycle.
+ * 
+ *         The gate states are stored as a bit mask with gate 0 in the most
+ *         significant bit and the time as an unsigned int. The list of gate
+ *         states returned to the frontend is shared by all entries with the
+ *         same bit mask and can´t be modified.
  *         
  *         @author Mickey Redecker
  *
  */
 public class GCLEntry {
 
-	private Long entryIdentifier; // random identifier, positive
-	private List<Boolean> gateStates; // 8 entries represent Gate 0-7
-	private Long timeInNs; // positive < 4294967296
+	// the gate states of every bit mask, indexed by the unsigned bit mask
+	private static final List<List<Boolean>> GATE_STATES = makeGateStates();
+
+	private long entryIdentifier; // random identifier, positive
+	private byte gateMask; // bit 7 - 0 represent Gate 0-7
+	private int timeInNs; // unsigned, positive < 4294967296
 
 	/**
 	 * Creates a new GCLEntry
@@ -29,20 +41,31 @@ public class GCLEntry {
 	 * @param gateStates      a list of 8 boolean gate states
 	 * @param timeInNs        the time which the entry will be active for per cycle
 	 */
+	@JsonCreator
 	public GCLEntry(Long entryIdentifier, List<Boolean> gateStates, Long timeInNs) {
+		this(entryIdentifier, toGateMask(gateStates), timeInNs);
+	}
+
+	/**
+	 * Creates a new GCLEntry from a bit mask of gate states
+	 * 
+	 * @param entryIdentifier A random unique identifier
+	 * @param gateMask        the gate states with gate 0 in the most significant
+	 *                        bit
+	 * @param timeInNs        the time which the entry will be active for per cycle
+	 */
+	public GCLEntry(long entryIdentifier, byte gateMask, long timeInNs) {
 
 		// guard statements to check for invalid values
-		if (gateStates.size() != 8) {
-			throw new IllegalArgumentException("gateState List size != 8");
-		} else if (entryIdentifier < 0) {
+		if (entryIdentifier < 0) {
 			throw new IllegalArgumentException("entryIdentifier is negative");
-		} else if (timeInNs > 4294967296L) {
-			throw new IllegalArgumentException("timeInNs must be below 4294967296");
+		} else if (timeInNs < 0 || timeInNs >= 4294967296L) {
+			throw new IllegalArgumentException("timeInNs must be between 0 and 4294967296");
 		}
 
 		this.entryIdentifier = entryIdentifier;
-		this.gateStates = gateStates;
-		this.timeInNs = timeInNs;
+		this.gateMask = gateMask;
+		this.timeInNs = (int) timeInNs;
 	}
 
 	// getters and setters with guard statements
@@ -58,25 +81,27 @@ public class GCLEntry {
 	}
 
 	public List<Boolean> getGateStates() {
-		return gateStates;
+		return toGateStates(gateMask);
 	}
 
 	public void setGateStates(List<Boolean> gateStates) {
-		if (gateStates.size() != 8) {
-			throw new IllegalArgumentException("gateState List size != 8");
-		}
-		this.gateStates = gateStates;
+		this.gateMask = toGateMask(gateStates);
+	}
+
+	@JsonIgnore
+	public byte getGateMask() {
+		return gateMask;
 	}
 
 	public Long getTimeInNs() {
-		return timeInNs;
+		return Integer.toUnsignedLong(timeInNs);
 	}
 
 	public void setTimeInNs(Long timeInNs) {
-		if (timeInNs > 4294967296L) {
-			throw new IllegalArgumentException("timeInNs must be below 4294967296");
+		if (timeInNs < 0 || timeInNs >= 4294967296L) {
+			throw new IllegalArgumentException("timeInNs must be between 0 and 4294967296");
 		}
-		this.timeInNs = timeInNs;
+		this.timeInNs = (int) timeInNs.longValue();
 	}
 
 	/**
@@ -85,12 +110,49 @@ public class GCLEntry {
 	 * @return deepcopy of the object
 	 */
 	public GCLEntry makeDeepCopy() {
+		return new GCLEntry(entryIdentifier, gateMask, Integer.toUnsignedLong(timeInNs));
+	}
 
-		List<Boolean> deepCopyGateStates = new LinkedList<Boolean>();
+	/**
+	 * Converts a list of gate states into a bit mask
+	 * 
+	 * @param gateStates a list of 8 boolean gate states, gate 0 first
+	 * @return the bit mask with gate 0 in the most significant bit
+	 */
+	public static byte toGateMask(List<Boolean> gateStates) {
+		if (gateStates.size() != 8) {
+			throw new IllegalArgumentException("gateState List size != 8");
+		}
+		int gateMask = 0;
+		int gate = 0;
 		for (Boolean gateState : gateStates) {
-			deepCopyGateStates.add(gateState);
+			if (gateState) {
+				gateMask |= 1 << (7 - gate);
+			}
+			gate++;
 		}
+		return (byte) gateMask;
+	}
+
+	/**
+	 * Converts a bit mask into a list of gate states
+	 * 
+	 * @param gateMask the bit mask with gate 0 in the most significant bit
+	 * @return an unmodifiable list of the 8 gate states, gate 0 first
+	 */
+	public static List<Boolean> toGateStates(byte gateMask) {
+		return GATE_STATES.get(gateMask & 0xFF);
+	}
 
-		return new GCLEntry(this.getEntryIdentifier(), deepCopyGateStates, this.getTimeInNs());
+	private static List<List<Boolean>> makeGateStates() {
+		List<List<Boolean>> allGateStates = new ArrayList<List<Boolean>>(256);
+		for (int gateMask = 0; gateMask < 256; gateMask++) {
+			List<Boolean> gateStates = new ArrayList<Boolean>(8);
+			for (int gate = 0; gate < 8; gate++) {
+				gateStates.add((gateMask & (1 << (7 - gate))) != 0);
+			}
+			allGateStates.add(Collections.unmodifiableList(gateStates));
+		}
+		return Collections.unmodifiableList(allGateStates);
 	}
 }
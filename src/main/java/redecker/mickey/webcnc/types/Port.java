@@ -1,11 +1,11 @@
 package redecker.mickey.webcnc.types;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 
- *
+ * 
  * 
  *         This class represents a TSN capable port on a TSN switch.
  * 
@@ -15,6 +15,10 @@ import java.util.List;
  *         it stores the information in a more human-readable format for easier
  *         frontend processing For example, PTPTimeValues are instead
  *         represented as Year, Month, Day, Hour, Minute, Second and Nanosecond.
+ * 
+ *         The gate control list is stored packed into a long array with two
+ *         longs per entry, the identifier followed by the gate mask and the
+ *         time interval. GCLEntries are only created when the list is read.
  *			
  * @author Mickey Redecker
  */
@@ -31,7 +35,7 @@ public class Port {
 	private Integer startMinute;// positive < 60
 	private Integer startSecond;// positive < 60
 	private Long startNanosecond;// positive < 1 000 000 000
-	private List<GCLEntry> gateControlList;
+	private long[] packedGateControlList; // identifier, gate mask << 32 | time in ns per entry
 	private boolean gateEnabled;
 
 	/**
@@ -94,7 +98,7 @@ public class Port {
 		this.startMinute = startMinute;
 		this.startSecond = startSecond;
 		this.startNanosecond = startNanosecond;
-		this.gateControlList = gateControlList;
+		this.packedGateControlList = pack(gateControlList);
 		this.gateEnabled = gateEnabled;
 	}
 
@@ -220,7 +224,19 @@ public class Port {
 		this.startNanosecond = startNanosecond;
 	}
 
+	/**
+	 * Returns the gate control list of the port. The list is unpacked on every
+	 * call, changes to it don´t affect the port.
+	 * 
+	 * @return a new list of the GCLEntries of the port
+	 */
 	public List<GCLEntry> getGateControlList() {
+		List<GCLEntry> gateControlList = new ArrayList<GCLEntry>(packedGateControlList.length / 2);
+		for (int i = 0; i < packedGateControlList.length; i += 2) {
+			long gateAndTime = packedGateControlList[i + 1];
+			gateControlList.add(new GCLEntry(packedGateControlList[i], (byte) (gateAndTime >>> 32),
+					gateAndTime & 0xFFFFFFFFL));
+		}
 		return gateControlList;
 	}
 
@@ -228,7 +244,7 @@ public class Port {
 		if (gateControlList == null) {
 			throw new IllegalArgumentException("gateControlList can´t be null");
 		}
-		this.gateControlList = gateControlList;
+		this.packedGateControlList = pack(gateControlList);
 	}
 	
 	public boolean getGateEnabled() {
@@ -246,16 +262,24 @@ public class Port {
 	 */
 	public Port makeDeepCopy() {
 
-		List<GCLEntry> copiedGateControlList = new LinkedList<GCLEntry>();
-		for (GCLEntry entry : this.gateControlList) {
-			GCLEntry deepCopyEntry = entry.makeDeepCopy();
-			copiedGateControlList.add(deepCopyEntry);
-		}
-
-		return new Port(this.getPortNumber(), this.getSwitchIdentifier(), this.getCycleTime(),
+		Port deepCopy = new Port(this.getPortNumber(), this.getSwitchIdentifier(), this.getCycleTime(),
 				this.getCycleTimeExtension(), this.getStartYear(), this.getStartMonth(), this.getStartDay(),
 				this.getStartHour(), this.getStartMinute(), this.getStartSecond(), this.getStartNanosecond(),
-				copiedGateControlList, this.getGateEnabled());
+				new ArrayList<GCLEntry>(0), this.getGateEnabled());
+		deepCopy.packedGateControlList = this.packedGateControlList.clone();
+		return deepCopy;
+	}
+
+	// packs the identifier, gate mask and time of every entry into two longs
+	private static long[] pack(List<GCLEntry> gateControlList) {
+		long[] packed = new long[2 * gateControlList.size()];
+		int i = 0;
+		for (GCLEntry entry : gateControlList) {
+			packed[i] = entry.getEntryIdentifier();
+			packed[i + 1] = (long) (entry.getGateMask() & 0xFF) << 32 | entry.getTimeInNs();
+			i += 2;
+		}
+		return packed;
 	}
 
 	private static boolean checkLeapYear(int year) {
@@ -0,0 +1,21 @@
+package redecker.mickey.webcnc.types;
+
+/**
+ * This class represents the IEEE 802.1Qbv parameters of a single TSN port that
+ * change whenever its operational parameters change
+ * 
+ * It is used to detect changed ports with a small request before their
+ * operational parameters and gate control lists are read
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class QbvChangeIndicatorsTuple {
+
+	public Integer portNumber;
+	public boolean gateEnabled;
+	public PTPTimeTuple configChangeTime;
+	public boolean configPending;
+	public Long operControlListLength;
+
+}
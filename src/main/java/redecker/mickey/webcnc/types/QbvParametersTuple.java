@@ -0,0 +1,25 @@
+package redecker.mickey.webcnc.types;
+
+import java.util.List;
+
+/**
+ * This class represents the IEEE 802.1Qbv parameters of a single TSN port as
+ * they are stored on the switch
+ * 
+ * It is used to read all operational parameters or write all admin parameters
+ * of a port with one SNMP request
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class QbvParametersTuple {
+
+	public Integer portNumber;
+	public boolean gateEnabled;
+	public Long cycleTimeNumerator;
+	public Long cycleTimeDenominator;
+	public Long cycleTimeExtension;
+	public PTPTimeTuple baseTime;
+	public List<GCLEntry> controlList;
+
+}
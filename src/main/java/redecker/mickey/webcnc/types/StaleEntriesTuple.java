@@ -0,0 +1,17 @@
+package redecker.mickey.webcnc.types;
+
+import java.util.Set;
+
+/**
+ * This class represents the entries of a switch that changed on the switch and
+ * have to be read again, either the whole switch or some of its ports
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class StaleEntriesTuple {
+
+	public boolean switchStale;
+	public Set<Integer> stalePortNumbers;
+
+}
@@ -0,0 +1,15 @@
+package redecker.mickey.webcnc.types.enums;
+
+/**
+ * 
+ * @author Mickey Redecker
+ * 
+ *         The enum indicates the state of the circuit breaker of a switch.
+ *         CLOSED lets all calls through, OPEN rejects all calls and HALF_OPEN
+ *         rejects all calls while a probe checks if the switch is reachable
+ *         again
+ *
+ */
+public enum CircuitState {
+	CLOSED, OPEN, HALF_OPEN
+}
@@ -0,0 +1,18 @@
+package redecker.mickey.webcnc.types.exceptions;
+
+/**
+ * 
+ * 
+ * 
+ *         This exception is thrown if a call to a switch is rejected because
+ *         the switch was unreachable recently and its circuit breaker is open
+ *         
+ *         @author Mickey Redecker
+ * 
+ *
+ */
+public class CircuitOpenException extends CommsException {
+	public CircuitOpenException(String errorMessage) {
+		super(errorMessage);
+	}
+}
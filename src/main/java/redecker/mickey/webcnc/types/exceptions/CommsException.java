@@ -5,9 +5,10 @@ package redecker.mickey.webcnc.types.exceptions;
  * 
  * 
  *         This exception is never thrown. It is the supertype for
- *         ResponseNullException and PDUException. All exceptions that extend
- *         this exception shall only contain non-sensitive information in their
- *         messages that can be displayed to the user in the frontend.
+ *         ResponseNullException, PDUException and CircuitOpenException. All
+ *         exceptions that extend this exception shall only contain
+ *         non-sensitive information in their messages that can be displayed to
+ *         the user in the frontend.
  *         
  *         @author Mickey Redecker
  * 
@@ -0,0 +1,59 @@
+package redecker.mickey.webcnc.perf;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class parses the key=value arguments of the performance tools
+ * 
+ * Missing and invalid values are replaced by the given default value, like the
+ * launch parameters of the backend
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class PerfArguments {
+
+	private final Map<String, String> values = new HashMap<String, String>();
+
+	/**
+	 * 
+	 * @param args the arguments of the form key=value, a leading -- is ignored
+	 */
+	public PerfArguments(String[] args) {
+		for (String arg : args) {
+			String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+			if (parts.length == 2) {
+				values.put(parts[0].trim(), parts[1].trim());
+			}
+		}
+	}
+
+	public String getString(String key, String defaultValue) {
+		return values.getOrDefault(key, defaultValue);
+	}
+
+	public int getInt(String key, int defaultValue) {
+		try {
+			return values.containsKey(key) ? Integer.parseInt(values.get(key)) : defaultValue;
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	public long getLong(String key, long defaultValue) {
+		try {
+			return values.containsKey(key) ? Long.parseLong(values.get(key)) : defaultValue;
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	public double getDouble(String key, double defaultValue) {
+		try {
+			return values.containsKey(key) ? Double.parseDouble(values.get(key)) : defaultValue;
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+}
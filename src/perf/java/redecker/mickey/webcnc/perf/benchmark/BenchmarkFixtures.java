@@ -0,0 +1,105 @@
+package redecker.mickey.webcnc.perf.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import redecker.mickey.webcnc.types.GCLEntry;
+import redecker.mickey.webcnc.types.Port;
+import redecker.mickey.webcnc.types.Switch;
+import redecker.mickey.webcnc.types.enums.AuthAlgorithm;
+import redecker.mickey.webcnc.types.enums.EncryptionAlgorithm;
+
+/**
+ * This class builds the switches, ports and gate control lists used by the
+ * benchmarks
+ * 
+ * All values are drawn from a random generator with a fixed seed, so every run
+ * of a benchmark works on the same data
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public final class BenchmarkFixtures {
+
+	public static final long SEED = 802113; // IEEE 802.1Qbv
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Builds a fleet of reachable switches
+	 * 
+	 * @param switchCount the number of switches
+	 * @param portCount   the number of TSN ports of every switch
+	 * @param gclLength   the number of entries of every gate control list
+	 * @return List of Switch objects identified by "switch" and their index
+	 */
+	public static List<Switch> makeSwitches(int switchCount, int portCount, int gclLength) {
+		Random random = new Random(SEED);
+		List<Switch> switches = new ArrayList<Switch>(switchCount);
+		for (int i = 0; i < switchCount; i++) {
+			switches.add(makeSwitch("switch" + i, portCount, gclLength, random));
+		}
+		return switches;
+	}
+
+	/**
+	 * Builds a reachable switch with a neighbor on every port
+	 * 
+	 * @param identifier the identifier and sysname of the switch
+	 * @param portCount  the number of TSN ports
+	 * @param gclLength  the number of entries of every gate control list
+	 * @param random     the source of all values
+	 * @return the switch
+	 */
+	public static Switch makeSwitch(String identifier, int portCount, int gclLength, Random random) {
+		List<String> neighborSysNames = new LinkedList<String>();
+		List<String> neighborPortIds = new LinkedList<String>();
+		List<Integer> neighborLocalPorts = new LinkedList<Integer>();
+		List<Port> tsnPorts = new LinkedList<Port>();
+		for (int portNumber = 1; portNumber <= portCount; portNumber++) {
+			neighborSysNames.add("switch" + random.nextInt(1000));
+			neighborPortIds.add("port-" + portNumber);
+			neighborLocalPorts.add(portNumber);
+			tsnPorts.add(makePort(identifier, portNumber, gclLength, random));
+		}
+		return new Switch(identifier, "127.0.0.1", 161, identifier, neighborSysNames, neighborPortIds,
+				neighborLocalPorts, "benchmarkUser", AuthAlgorithm.SHA1, "benchmarkAuthPassword",
+				EncryptionAlgorithm.AES128, "benchmarkEncryptPassword", tsnPorts, true);
+	}
+
+	/**
+	 * Builds a TSN port with gates enabled
+	 * 
+	 * @param switchIdentifier the identifier of the switch of the port
+	 * @param portNumber       the number of the port
+	 * @param gclLength        the number of entries of the gate control list
+	 * @param random           the source of all values
+	 * @return the port
+	 */
+	public static Port makePort(String switchIdentifier, int portNumber, int gclLength, Random random) {
+		List<GCLEntry> gcl = makeGateControlList(gclLength, random);
+		long cycleTime = 0;
+		for (GCLEntry entry : gcl) {
+			cycleTime += entry.getTimeInNs();
+		}
+		return new Port(portNumber, switchIdentifier, cycleTime, 0L, 2024, 1, 1, 0, 0, 0, 0L, gcl, true);
+	}
+
+	/**
+	 * Builds a gate control list with random gate states and time intervals
+	 * 
+	 * @param gclLength the number of entries
+	 * @param random    the source of all values
+	 * @return the gate control list
+	 */
+	public static List<GCLEntry> makeGateControlList(int gclLength, Random random) {
+		List<GCLEntry> gcl = new ArrayList<GCLEntry>(gclLength);
+		for (int i = 0; i < gclLength; i++) {
+			gcl.add(new GCLEntry(i, (byte) random.nextInt(256), 1000 + random.nextInt(1000000)));
+		}
+		return gcl;
+	}
+}
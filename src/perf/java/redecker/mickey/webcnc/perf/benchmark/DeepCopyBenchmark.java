@@ -0,0 +1,61 @@
+package redecker.mickey.webcnc.perf.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import redecker.mickey.webcnc.types.Port;
+import redecker.mickey.webcnc.types.Switch;
+
+/**
+ * This class benchmarks the deep copies the netStateCache makes on every read
+ * and write
+ * 
+ * @author Mickey Redecker
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class DeepCopyBenchmark {
+
+	@Param({ "8", "48" })
+	public int portCount;
+
+	@Param({ "16", "256" })
+	public int gclLength;
+
+	private Switch tsnSwitch;
+	private Port port;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(BenchmarkFixtures.SEED);
+		tsnSwitch = BenchmarkFixtures.makeSwitch("switch0", portCount, gclLength, random);
+		port = BenchmarkFixtures.makePort("switch0", 1, gclLength, random);
+	}
+
+	@Benchmark
+	public Switch switchDeepCopy() {
+		return tsnSwitch.makeDeepCopy();
+	}
+
+	@Benchmark
+	public Port portDeepCopy() {
+		return port.makeDeepCopy();
+	}
+}
@@ -0,0 +1,58 @@
+package redecker.mickey.webcnc.perf.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import redecker.mickey.webcnc.switchcomms.talker.GCLCodec;
+import redecker.mickey.webcnc.types.GCLEntry;
+
+/**
+ * This class benchmarks encoding and decoding the TLVs of gate control lists
+ * 
+ * @author Mickey Redecker
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class GCLCodecBenchmark {
+
+	@Param({ "8", "64", "1024" })
+	public int gclLength;
+
+	private List<GCLEntry> gcl;
+	private byte[] tlvs;
+
+	@Setup
+	public void setup() {
+		gcl = BenchmarkFixtures.makeGateControlList(gclLength, new Random(BenchmarkFixtures.SEED));
+		tlvs = GCLCodec.encode(gcl);
+	}
+
+	@Benchmark
+	public byte[] encode() {
+		return GCLCodec.encode(gcl);
+	}
+
+	@Benchmark
+	public List<GCLEntry> decode() {
+		return GCLCodec.decode(ByteBuffer.wrap(tlvs));
+	}
+}
@@ -0,0 +1,92 @@
+package redecker.mickey.webcnc.perf.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import redecker.mickey.webcnc.netstate.NetworkStateCache;
+import redecker.mickey.webcnc.types.Switch;
+
+/**
+ * This class benchmarks the netStateCache under concurrent readers and writers
+ * 
+ * The readers fetch all switches like /getswitches or a single switch like
+ * /saveport, the writer replaces single switches like a refresh. The readOnly
+ * group measures the same reads without a writer for comparison.
+ * 
+ * @author Mickey Redecker
+ *
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class NetworkStateCacheBenchmark {
+
+	private static final int PORT_COUNT = 8;
+	private static final int GCL_LENGTH = 16;
+
+	@Param({ "100", "1000" })
+	public int switchCount;
+
+	private NetworkStateCache cache;
+	private List<Switch> switches;
+
+	@Setup
+	public void setup() {
+		switches = BenchmarkFixtures.makeSwitches(switchCount, PORT_COUNT, GCL_LENGTH);
+		cache = new NetworkStateCache();
+		cache.replaceAllSwitches(switches);
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(2)
+	public List<Switch> readWriteGetAllSwitches() {
+		return cache.getAllSwitches();
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(2)
+	public Switch readWriteGetSwitch() {
+		return cache.getSwitch("switch" + ThreadLocalRandom.current().nextInt(switchCount));
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(1)
+	public Boolean readWriteReplaceSwitch() {
+		return cache.replaceSwitch(switches.get(ThreadLocalRandom.current().nextInt(switchCount)));
+	}
+
+	@Benchmark
+	@Group("readOnly")
+	@GroupThreads(2)
+	public List<Switch> readOnlyGetAllSwitches() {
+		return cache.getAllSwitches();
+	}
+
+	@Benchmark
+	@Group("readOnly")
+	@GroupThreads(2)
+	public Switch readOnlyGetSwitch() {
+		return cache.getSwitch("switch" + ThreadLocalRandom.current().nextInt(switchCount));
+	}
+}
@@ -0,0 +1,70 @@
+package redecker.mickey.webcnc.perf.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import redecker.mickey.webcnc.netstate.NetworkStateCache;
+import redecker.mickey.webcnc.types.Switch;
+
+/**
+ * This class benchmarks the payload of /getswitches
+ * 
+ * The object mapper is configured like the one Spring uses for the REST
+ * controllers. serialize only measures Jackson, getSwitches also includes the
+ * deep copies made by the netStateCache.
+ * 
+ * @author Mickey Redecker
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class SwitchSerializationBenchmark {
+
+	private static final int PORT_COUNT = 8;
+	private static final int GCL_LENGTH = 16;
+
+	@Param({ "10", "100", "1000", "10000" })
+	public int switchCount;
+
+	private ObjectMapper objectMapper;
+	private NetworkStateCache cache;
+	private List<Switch> switches;
+
+	@Setup
+	public void setup() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		switches = BenchmarkFixtures.makeSwitches(switchCount, PORT_COUNT, GCL_LENGTH);
+		cache = new NetworkStateCache();
+		cache.replaceAllSwitches(switches);
+	}
+
+	@Benchmark
+	public byte[] serialize() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(switches);
+	}
+
+	@Benchmark
+	public byte[] getSwitches() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(cache.getAllSwitches());
+	}
+}
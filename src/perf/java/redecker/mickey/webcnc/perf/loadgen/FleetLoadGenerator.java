@@ -0,0 +1,249 @@
+package redecker.mickey.webcnc.perf.loadgen;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.DefaultApplicationArguments;
+
+import redecker.mickey.webcnc.perf.PerfArguments;
+import redecker.mickey.webcnc.perf.simulator.SimulationConditionsTuple;
+import redecker.mickey.webcnc.perf.simulator.SwitchFleetSimulator;
+import redecker.mickey.webcnc.restcontroller.ReloadBackendController;
+import redecker.mickey.webcnc.restcontroller.SavePortController;
+import redecker.mickey.webcnc.setup.StartupManager;
+import redecker.mickey.webcnc.setup.WebcncApplication;
+import redecker.mickey.webcnc.types.GCLEntry;
+import redecker.mickey.webcnc.types.Port;
+import redecker.mickey.webcnc.types.Switch;
+import redecker.mickey.webcnc.types.exceptions.CommsException;
+
+/**
+ * This class drives the backend against a simulated fleet of switches and
+ * reports how long refreshes take
+ * 
+ * The backend runs in the same process without Spring: the StartupManager and
+ * the controllers are called directly, so only the switch communication is
+ * measured. Four phases are run one after another:
+ * 
+ * startup: the StartupManager reads the whole fleet once
+ * 
+ * reload: the ReloadBackendController reads the whole fleet several times
+ * 
+ * refresh: the switchComms updates every known switch several times, like a
+ * refresh triggered by a notification
+ * 
+ * saveport: the SavePortController writes changed gate control lists to random
+ * ports
+ * 
+ * For every phase the number of calls, failed calls and switches unreachable
+ * afterwards, the wall time, the SNMP requests received by the switches
+ * (including retries) and the bytes of their responses, the p50 / p99 latency of the calls, the peak number of
+ * sockets opened by the backend and the bytes it allocated are reported.
+ * 
+ * The StartupManager reads ./switchconfig.txt, so the load generator has to
+ * run in a directory of its own. It writes the config file of the simulated
+ * fleet there and refuses to overwrite any other config file:
+ * mvn -Pperf test-compile exec:exec@loadgen -Dloadgen.args="switches=100
+ * ports=8 gclLength=64 latency=2"
+ * 
+ * Arguments starting with -- are passed to the StartupManager as launch
+ * parameters, e.g. --switchRequestWindow=8
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class FleetLoadGenerator {
+
+	private static final Logger logger = LogManager.getLogger(FleetLoadGenerator.class);
+
+	private static final String CONFIG_FILE = "./switchconfig.txt";
+	private static final String CONFIG_MARKER = "# simulated switches of the load generator";
+	private static final String PASSWORD = "loadgen";
+
+	private final SwitchFleetSimulator fleet;
+	private final ResourceSampler sampler;
+	private final List<String> report = new ArrayList<String>();
+
+	private FleetLoadGenerator(SwitchFleetSimulator fleet, ResourceSampler sampler) {
+		this.fleet = fleet;
+		this.sampler = sampler;
+		report.add(String.format("%-9s %7s %7s %8s %10s %9s %10s %9s %9s %8s %10s", "phase", "calls", "failed",
+				"unreach", "wall ms", "requests", "resp KB", "p50 ms", "p99 ms", "sockets", "alloc MB"));
+	}
+
+	/**
+	 * Runs all phases against a simulated fleet
+	 * 
+	 * @param args switches, ports, gclLength, latency, loss, processingDelay,
+	 *             reloads, refreshes, saves and launch parameters of the backend
+	 *             starting with --
+	 */
+	public static void main(String[] args) throws Exception {
+		PerfArguments arguments = new PerfArguments(args);
+		SimulationConditionsTuple conditions = new SimulationConditionsTuple();
+		conditions.latencyMillis = arguments.getLong("latency", 0);
+		conditions.lossRate = arguments.getDouble("loss", 0);
+		conditions.processingDelayMillis = arguments.getLong("processingDelay", 0);
+		int reloads = arguments.getInt("reloads", 5);
+		int refreshes = arguments.getInt("refreshes", 5);
+		int saves = arguments.getInt("saves", 100);
+
+		List<String> launchParameters = new ArrayList<String>();
+		launchParameters.add("--password=" + PASSWORD);
+		launchParameters.add("--notificationPort=0"); // no notifications are sent
+		launchParameters.add("--pollInterval=0"); // the phases are measured without background polls
+		for (String arg : args) {
+			if (arg.startsWith("--")) {
+				launchParameters.add(arg);
+			}
+		}
+
+		SwitchFleetSimulator fleet = new SwitchFleetSimulator(arguments.getInt("switches", 10),
+				arguments.getInt("ports", 8), arguments.getInt("gclLength", 16), 0, conditions);
+		ResourceSampler sampler = new ResourceSampler();
+		StartupManager startupManager = new StartupManager();
+		try {
+			writeSwitchConfig(fleet);
+			FleetLoadGenerator generator = new FleetLoadGenerator(fleet, sampler);
+			generator.runStartup(startupManager, launchParameters.toArray(new String[0]));
+			generator.runReloads(reloads);
+			generator.runRefreshes(refreshes);
+			generator.runSaves(saves);
+			for (String line : generator.report) {
+				System.out.println(line);
+			}
+		} finally {
+			startupManager.destroy();
+			sampler.close();
+			fleet.close();
+		}
+	}
+
+	private void runStartup(StartupManager startupManager, String[] launchParameters) throws Exception {
+		LatencyRecorder latencies = new LatencyRecorder();
+		Phase phase = startPhase();
+		long start = System.nanoTime();
+		startupManager.run(new DefaultApplicationArguments(launchParameters));
+		latencies.add(System.nanoTime() - start);
+		endPhase(phase, "startup", latencies, 0);
+	}
+
+	private void runReloads(int reloads) {
+		ReloadBackendController controller = new ReloadBackendController();
+		LatencyRecorder latencies = new LatencyRecorder();
+		int failed = 0;
+		Phase phase = startPhase();
+		for (int i = 0; i < reloads; i++) {
+			long start = System.nanoTime();
+			if (!controller.reloadBackend(PASSWORD).getStatusCode().is2xxSuccessful()) {
+				failed++;
+			}
+			latencies.add(System.nanoTime() - start);
+		}
+		endPhase(phase, "reload", latencies, failed);
+	}
+
+	private void runRefreshes(int refreshes) {
+		LatencyRecorder latencies = new LatencyRecorder();
+		int failed = 0;
+		Phase phase = startPhase();
+		for (int i = 0; i < refreshes; i++) {
+			for (String identifier : WebcncApplication.netstatecache.getAllSwitchIdentifiers()) {
+				long start = System.nanoTime();
+				try {
+					Switch newSwitch = WebcncApplication.switchComms
+							.getUpdatedSwitch(WebcncApplication.netstatecache.getSwitch(identifier));
+					WebcncApplication.netstatecache.replaceSwitch(newSwitch);
+				} catch (CommsException e) {
+					failed++;
+				}
+				latencies.add(System.nanoTime() - start);
+			}
+		}
+		endPhase(phase, "refresh", latencies, failed);
+	}
+
+	private void runSaves(int saves) {
+		SavePortController controller = new SavePortController();
+		LatencyRecorder latencies = new LatencyRecorder();
+		Random random = new Random(saves);
+		List<String> identifiers = WebcncApplication.netstatecache.getAllSwitchIdentifiers();
+		int failed = 0;
+		Phase phase = startPhase();
+		for (int i = 0; i < saves; i++) {
+			Switch tsnSwitch = WebcncApplication.netstatecache
+					.getSwitch(identifiers.get(random.nextInt(identifiers.size())));
+			List<Port> ports = tsnSwitch.getTsnPorts();
+			if (ports.isEmpty()) {
+				failed++;
+				continue;
+			}
+			// rotate the gate control list, so every save writes a changed list
+			Port port = ports.get(random.nextInt(ports.size()));
+			List<GCLEntry> gcl = port.getGateControlList();
+			Collections.rotate(gcl, 1);
+			port.setGateControlList(gcl);
+
+			long start = System.nanoTime();
+			if (!controller.savePortConfig(port, PASSWORD).getStatusCode().is2xxSuccessful()) {
+				failed++;
+			}
+			latencies.add(System.nanoTime() - start);
+		}
+		endPhase(phase, "saveport", latencies, failed);
+	}
+
+	private Phase startPhase() {
+		System.gc();
+		sampler.resetPeakSockets();
+		Phase phase = new Phase();
+		phase.requests = fleet.getRequestCount();
+		phase.responseBytes = fleet.getResponseBytes();
+		phase.allocatedBytes = sampler.getAllocatedBytes();
+		phase.start = System.nanoTime();
+		return phase;
+	}
+
+	private void endPhase(Phase phase, String name, LatencyRecorder latencies, int failed) {
+		double wallMillis = (System.nanoTime() - phase.start) / 1000000.0;
+		long requests = fleet.getRequestCount() - phase.requests;
+		double responseKB = (fleet.getResponseBytes() - phase.responseBytes) / 1024.0;
+		double allocatedMB = (sampler.getAllocatedBytes() - phase.allocatedBytes) / 1048576.0;
+		int unreachable = WebcncApplication.netstatecache.getUnreachableSwitches().size();
+		report.add(String.format("%-9s %7d %7d %8d %10.1f %9d %10.1f %9.2f %9.2f %8d %10.1f", name,
+				latencies.getCount(), failed, unreachable, wallMillis, requests, responseKB,
+				latencies.getPercentileMillis(50), latencies.getPercentileMillis(99), sampler.getPeakSockets(),
+				allocatedMB));
+		logger.info("Phase " + name + " finished");
+	}
+
+	private static void writeSwitchConfig(SwitchFleetSimulator fleet) throws IOException {
+		File config = new File(CONFIG_FILE);
+		if (config.exists()) {
+			try (BufferedReader reader = new BufferedReader(new FileReader(config))) {
+				if (!CONFIG_MARKER.equals(reader.readLine())) {
+					throw new IllegalStateException(config.getAbsolutePath()
+							+ " wasn´t written by the load generator, run it in a directory of its own");
+				}
+			}
+		}
+		fleet.writeSwitchConfig(CONFIG_FILE, CONFIG_MARKER);
+	}
+
+	// the counters at the start of a phase
+	private static class Phase {
+
+		private long start;
+		private long requests;
+		private long responseBytes;
+		private long allocatedBytes;
+	}
+}
@@ -0,0 +1,50 @@
+package redecker.mickey.webcnc.perf.loadgen;
+
+import java.util.Arrays;
+
+/**
+ * This class records the latencies of one operation and computes their
+ * percentiles
+ * 
+ * The recorder is thread-safe
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class LatencyRecorder {
+
+	private long[] latencies = new long[64];
+	private int count = 0;
+
+	/**
+	 * Adds the latency of one call
+	 * 
+	 * @param latencyNanos the duration of the call in ns
+	 */
+	public synchronized void add(long latencyNanos) {
+		if (count == latencies.length) {
+			latencies = Arrays.copyOf(latencies, count * 2);
+		}
+		latencies[count++] = latencyNanos;
+	}
+
+	public synchronized int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns a percentile of the recorded latencies (nearest rank)
+	 * 
+	 * @param percentile the percentile between 0 and 100
+	 * @return the latency in ms, or 0 if nothing was recorded
+	 */
+	public synchronized double getPercentileMillis(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(latencies, count);
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(percentile / 100 * count);
+		return sorted[Math.max(0, Math.min(count, rank) - 1)] / 1000000.0;
+	}
+}
@@ -0,0 +1,131 @@
+package redecker.mickey.webcnc.perf.loadgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class samples the sockets and heap allocations of the backend while the
+ * load generator runs
+ * 
+ * Sockets are counted in /proc/self/fd, so they are only available on Linux.
+ * The sockets of the simulated switches are counted once before the backend
+ * starts and subtracted.
+ * 
+ * Allocations are summed over the threads of the backend, the threads of the
+ * simulated switches are left out. The allocations of every thread are sampled
+ * periodically, so threads that end during a phase are counted up to their
+ * last sample.
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class ResourceSampler {
+
+	private static final long SAMPLE_INTERVAL = 20; // ms between two samples
+
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+	private final ScheduledExecutorService sampler;
+	private final int baselineSockets;
+	private final Map<Long, Long> allocatedBytes = new HashMap<Long, Long>(); // guarded by this
+	private long endedThreadsBytes = 0; // guarded by this
+	private int peakSockets = 0; // guarded by this
+
+	/**
+	 * Starts sampling, all sockets open at this point are not counted
+	 */
+	public ResourceSampler() {
+		this.baselineSockets = countSockets();
+		this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "switch-simulator-sampler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sampler.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the highest number of sockets opened by the backend since the last
+	 * reset
+	 * 
+	 * @return number of sockets, or -1 if sockets can´t be counted
+	 */
+	public synchronized int getPeakSockets() {
+		return baselineSockets < 0 ? -1 : peakSockets;
+	}
+
+	/**
+	 * Returns the number of bytes the backend allocated on the heap so far
+	 * 
+	 * @return allocated bytes
+	 */
+	public synchronized long getAllocatedBytes() {
+		sample();
+		long sum = endedThreadsBytes;
+		for (long bytes : allocatedBytes.values()) {
+			sum += bytes;
+		}
+		return sum;
+	}
+
+	/**
+	 * Starts a new measurement of the peak number of sockets
+	 */
+	public synchronized void resetPeakSockets() {
+		peakSockets = Math.max(0, countSockets() - baselineSockets);
+	}
+
+	public void close() {
+		sampler.shutdownNow();
+	}
+
+	private synchronized void sample() {
+		if (baselineSockets >= 0) {
+			peakSockets = Math.max(peakSockets, countSockets() - baselineSockets);
+		}
+
+		Map<Long, Long> liveThreads = new HashMap<Long, Long>();
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			// the simulated switches listen on loopback, the backend on all interfaces
+			if (thread.getName().contains("127.0.0.1") || thread.getName().startsWith("switch-simulator")) {
+				continue;
+			}
+			long bytes = threads.getThreadAllocatedBytes(thread.getId());
+			if (bytes >= 0) {
+				liveThreads.put(thread.getId(), bytes);
+			}
+		}
+		for (Map.Entry<Long, Long> entry : allocatedBytes.entrySet()) {
+			if (!liveThreads.containsKey(entry.getKey())) {
+				endedThreadsBytes += entry.getValue();
+			}
+		}
+		allocatedBytes.clear();
+		allocatedBytes.putAll(liveThreads);
+	}
+
+	private static int countSockets() {
+		File[] descriptors = new File("/proc/self/fd").listFiles();
+		if (descriptors == null) {
+			return -1;
+		}
+		int sockets = 0;
+		for (File descriptor : descriptors) {
+			try {
+				if (Files.readSymbolicLink(descriptor.toPath()).toString().startsWith("socket:")) {
+					sockets++;
+				}
+			} catch (IOException e) {
+				// the descriptor was closed in the meantime
+			}
+		}
+		return sockets;
+	}
+}
@@ -0,0 +1,430 @@
+package redecker.mickey.webcnc.perf.simulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageDispatcher;
+import org.snmp4j.MessageDispatcherImpl;
+import org.snmp4j.MessageException;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.CounterSupport;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.security.AuthMD5;
+import org.snmp4j.security.AuthSHA;
+import org.snmp4j.security.PrivAES128;
+import org.snmp4j.security.PrivDES;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.security.SecurityModels;
+import org.snmp4j.security.SecurityProtocols;
+import org.snmp4j.security.SecurityProtocols.SecurityProtocolSet;
+import org.snmp4j.security.USM;
+import org.snmp4j.security.UsmUser;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.UnsignedInteger32;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+import redecker.mickey.webcnc.switchcomms.talker.GCLCodec;
+import redecker.mickey.webcnc.switchcomms.talker.OIDCatalogue;
+import redecker.mickey.webcnc.types.GCLEntry;
+import redecker.mickey.webcnc.types.enums.AuthAlgorithm;
+import redecker.mickey.webcnc.types.enums.EncryptionAlgorithm;
+
+/**
+ * This class simulates the SNMPv3 agent of a TSN switch on a loopback port
+ * 
+ * The agent serves every object the backend reads or writes: sysName, the
+ * lldpRemSysName and lldpRemPortId columns of the LLDP remote table, its
+ * lldpStatsRemTablesLastChangeTime and the Qbv columns of all ports
+ * (GateEnabled, the control lists and their lengths, cycle time, base time,
+ * ConfigChange, ConfigChangeTime and ConfigPending). GET, GETNEXT, GETBULK and
+ * SET requests are answered, responses larger than the maximum size of the
+ * request are answered with tooBig or, for GETBULK, shortened.
+ * 
+ * A SET is applied all or nothing. Setting ConfigChange to true copies the
+ * admin parameters of the port to its oper parameters right away.
+ * 
+ * Every switch has its own engine ID and a single user. Requests are answered
+ * after the processing delay, the transport adds latency and loss.
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SimulatedSwitch implements CommandResponder {
+
+	private static final Logger logger = LogManager.getLogger(SimulatedSwitch.class);
+
+	private static final long NANOSECONDS_PER_SECOND = 1000000000L;
+	private static final long GCL_ENTRY_TIME = 125000; // time interval of a generated entry in ns
+	private static final int TRUE = 1; // TruthValue
+	private static final int FALSE = 2; // TruthValue
+
+	// columns the backend may write, all others are read-only
+	private static final int[] WRITABLE_COLUMNS = { OIDCatalogue.GATE_ENABLED,
+			OIDCatalogue.ADMIN_CONTROL_LIST_LENGTH, OIDCatalogue.ADMIN_CONTROL_LIST,
+			OIDCatalogue.ADMIN_CYCLE_TIME_NUMERATOR, OIDCatalogue.ADMIN_CYCLE_TIME_DENOMINATOR,
+			OIDCatalogue.ADMIN_CYCLE_TIME_EXTENSION, OIDCatalogue.ADMIN_BASE_TIME, OIDCatalogue.CONFIG_CHANGE };
+
+	private final String sysName;
+	private final SimulationConditionsTuple conditions;
+	private final ScheduledExecutorService scheduler;
+	private final Snmp snmp;
+	private final SimulatedUdpTransportMapping transport;
+	private final TreeMap<OID, Variable> mib = new TreeMap<OID, Variable>(); // guarded by itself
+	private final AtomicLong requestCount = new AtomicLong(0);
+
+	/**
+	 * Creates the switch and starts listening for requests
+	 * 
+	 * @param sysName          the sysName of the switch
+	 * @param port             the UDP port on 127.0.0.1, 0 for any free port
+	 * @param portCount        the number of TSN ports, numbered from 1
+	 * @param gclLength        the number of entries of every control list
+	 * @param lldpNeighbors    the sysNames of the neighbors of the ports, one per
+	 *                         port starting with port 1
+	 * @param authUserName     the SNMPv3 user name
+	 * @param authAlgorithm    the SNMPv3 authentication algorithm
+	 * @param authPassword     the SNMPv3 authentication password
+	 * @param encryptAlgorithm the SNMPv3 encryption algorithm
+	 * @param encryptPassword  the SNMPv3 encryption password
+	 * @param conditions       the latency, loss rate and processing delay
+	 * @param scheduler        the executor used for delayed responses
+	 * @throws IOException If the UDP port can´t be opened
+	 */
+	public SimulatedSwitch(String sysName, int port, int portCount, int gclLength, List<String> lldpNeighbors,
+			String authUserName, AuthAlgorithm authAlgorithm, String authPassword,
+			EncryptionAlgorithm encryptAlgorithm, String encryptPassword, SimulationConditionsTuple conditions,
+			ScheduledExecutorService scheduler) throws IOException {
+		if (gclLength < 0 || gclLength > GCLCodec.MAX_ENTRIES) {
+			throw new IllegalArgumentException("gclLength must be between 0 and " + GCLCodec.MAX_ENTRIES);
+		}
+		this.sysName = sysName;
+		this.conditions = conditions;
+		this.scheduler = scheduler;
+		fillMib(portCount, gclLength, lldpNeighbors);
+
+		SecurityProtocols securityProtocols = new SecurityProtocols(SecurityProtocolSet.none);
+		securityProtocols.addAuthenticationProtocol(new AuthMD5());
+		securityProtocols.addAuthenticationProtocol(new AuthSHA());
+		securityProtocols.addPrivacyProtocol(new PrivDES());
+		securityProtocols.addPrivacyProtocol(new PrivAES128());
+		OctetString engineID = new OctetString(MPv3.createLocalEngineID(new OctetString(sysName)));
+		USM usm = new USM(securityProtocols, engineID, 0);
+		usm.addUser(new OctetString(authUserName),
+				new UsmUser(new OctetString(authUserName),
+						authAlgorithm == AuthAlgorithm.MD5 ? AuthMD5.ID : AuthSHA.ID, new OctetString(authPassword),
+						encryptAlgorithm == EncryptionAlgorithm.DES ? PrivDES.ID : PrivAES128.ID,
+						new OctetString(encryptPassword)));
+		MPv3 mpv3 = new MPv3(engineID.getValue(), null, securityProtocols,
+				SecurityModels.getCollection(new SecurityModel[] { usm }), CounterSupport.getInstance());
+		MessageDispatcher dispatcher = new MessageDispatcherImpl();
+		dispatcher.addMessageProcessingModel(mpv3);
+
+		this.transport = new SimulatedUdpTransportMapping(new UdpAddress("127.0.0.1/" + port), conditions,
+				scheduler);
+		this.snmp = new Snmp(dispatcher, transport);
+		snmp.addCommandResponder(this);
+		snmp.listen();
+	}
+
+	// getters
+	public String getSysName() {
+		return sysName;
+	}
+
+	public int getPort() {
+		return transport.getListenAddress().getPort();
+	}
+
+	/**
+	 * Returns the number of requests received so far, including requests that
+	 * are dropped on their way back
+	 * 
+	 * @return number of received requests
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Returns the number of bytes of all responses sent so far, including
+	 * responses that are dropped
+	 * 
+	 * @return number of sent bytes
+	 */
+	public long getResponseBytes() {
+		return transport.getSentBytes();
+	}
+
+	/**
+	 * Stops listening for requests
+	 */
+	public void close() throws IOException {
+		snmp.close();
+	}
+
+	@Override
+	public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+		PDU request = event.getPDU();
+		if (request == null) {
+			return;
+		}
+		int type = request.getType();
+		if (type != PDU.GET && type != PDU.GETNEXT && type != PDU.GETBULK && type != PDU.SET) {
+			return;
+		}
+		event.setProcessed(true);
+		requestCount.incrementAndGet();
+		if (conditions.processingDelayMillis > 0) {
+			scheduler.schedule(() -> respond(event), conditions.processingDelayMillis, TimeUnit.MILLISECONDS);
+		} else {
+			respond(event);
+		}
+	}
+
+	private <A extends Address> void respond(CommandResponderEvent<A> event) {
+		PDU request = event.getPDU();
+		PDU response = (PDU) request.clone();
+		response.setType(PDU.RESPONSE);
+		response.setErrorStatus(PDU.noError);
+		response.setErrorIndex(0);
+
+		synchronized (mib) {
+			switch (request.getType()) {
+			case PDU.GET:
+				for (VariableBinding binding : response.getVariableBindings()) {
+					Variable variable = mib.get(binding.getOid());
+					binding.setVariable(variable != null ? variable : Null.noSuchInstance);
+				}
+				break;
+			case PDU.GETNEXT:
+				for (VariableBinding binding : response.getVariableBindings()) {
+					setNext(binding, binding.getOid());
+				}
+				break;
+			case PDU.GETBULK:
+				response.setVariableBindings(getBulk(request));
+				break;
+			default:
+				set(request, response);
+			}
+		}
+
+		// the maximum size includes the scoped PDU header, keep some room for it
+		int maxSize = event.getMaxSizeResponsePDU() - 64;
+		if (response.getBERLength() > maxSize) {
+			if (request.getType() == PDU.GETBULK) {
+				List<VariableBinding> bindings = new ArrayList<VariableBinding>(response.getVariableBindings());
+				while (bindings.size() > 1 && response.getBERLength() > maxSize) {
+					bindings.remove(bindings.size() - 1);
+					response.setVariableBindings(bindings);
+				}
+			} else {
+				response = (PDU) request.clone();
+				response.setType(PDU.RESPONSE);
+				response.setErrorStatus(PDU.tooBig);
+				response.setErrorIndex(0);
+			}
+		}
+
+		try {
+			event.getMessageDispatcher().returnResponsePdu(event.getMessageProcessingModel(),
+					event.getSecurityModel(), event.getSecurityName(), event.getSecurityLevel(), response,
+					event.getMaxSizeResponsePDU(), event.getStateReference(), new StatusInformation());
+		} catch (MessageException e) {
+			logger.debug("Switch " + sysName + " couldn´t send response: " + e.getMessage());
+		}
+	}
+
+	// must be called while holding the monitor of the mib
+	private void setNext(VariableBinding binding, OID oid) {
+		Map.Entry<OID, Variable> next = mib.higherEntry(oid);
+		if (next == null) {
+			binding.setOid(oid);
+			binding.setVariable(Null.endOfMibView);
+		} else {
+			binding.setOid(next.getKey());
+			binding.setVariable(next.getValue());
+		}
+	}
+
+	// must be called while holding the monitor of the mib
+	private List<VariableBinding> getBulk(PDU request) {
+		List<? extends VariableBinding> requested = request.getVariableBindings();
+		int nonRepeaters = Math.min(Math.max(request.getNonRepeaters(), 0), requested.size());
+		int maxRepetitions = Math.max(request.getMaxRepetitions(), 0);
+		List<VariableBinding> bindings = new ArrayList<VariableBinding>();
+		for (int i = 0; i < nonRepeaters; i++) {
+			VariableBinding binding = new VariableBinding();
+			setNext(binding, requested.get(i).getOid());
+			bindings.add(binding);
+		}
+
+		// the repeaters continue from the last row returned for them
+		List<OID> cursors = new ArrayList<OID>();
+		for (int i = nonRepeaters; i < requested.size(); i++) {
+			cursors.add(requested.get(i).getOid());
+		}
+		for (int repetition = 0; repetition < maxRepetitions && !cursors.isEmpty(); repetition++) {
+			boolean endOfMib = true;
+			for (int i = 0; i < cursors.size(); i++) {
+				VariableBinding binding = new VariableBinding();
+				setNext(binding, cursors.get(i));
+				cursors.set(i, binding.getOid());
+				bindings.add(binding);
+				endOfMib &= binding.getVariable() == Null.endOfMibView;
+			}
+			if (endOfMib) {
+				break;
+			}
+		}
+		return bindings;
+	}
+
+	// must be called while holding the monitor of the mib
+	private void set(PDU request, PDU response) {
+		List<? extends VariableBinding> bindings = request.getVariableBindings();
+
+		// check all bindings before writing anything
+		for (int i = 0; i < bindings.size(); i++) {
+			VariableBinding binding = bindings.get(i);
+			Variable oldValue = mib.get(binding.getOid());
+			int errorStatus = PDU.noError;
+			if (oldValue == null) {
+				errorStatus = PDU.noCreation;
+			} else if (!isWritable(binding.getOid())) {
+				errorStatus = PDU.notWritable;
+			} else if (oldValue.getSyntax() != binding.getVariable().getSyntax()) {
+				errorStatus = PDU.wrongType;
+			}
+			if (errorStatus != PDU.noError) {
+				response.setErrorStatus(errorStatus);
+				response.setErrorIndex(i + 1);
+				return;
+			}
+		}
+
+		for (VariableBinding binding : bindings) {
+			mib.put(binding.getOid(), (Variable) binding.getVariable().clone());
+		}
+		for (VariableBinding binding : bindings) {
+			OID oid = binding.getOid();
+			if (oid.equals(OIDCatalogue.qbv(OIDCatalogue.CONFIG_CHANGE, oid.last()))
+					&& binding.getVariable().toInt() == TRUE) {
+				applyConfigChange(oid.last());
+			}
+		}
+	}
+
+	private boolean isWritable(OID oid) {
+		for (int column : WRITABLE_COLUMNS) {
+			if (oid.equals(OIDCatalogue.qbv(column, oid.last()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// must be called while holding the monitor of the mib
+	private void applyConfigChange(int portNumber) {
+		copy(OIDCatalogue.ADMIN_CONTROL_LIST_LENGTH, OIDCatalogue.OPER_CONTROL_LIST_LENGTH, portNumber);
+		copy(OIDCatalogue.ADMIN_CONTROL_LIST, OIDCatalogue.OPER_CONTROL_LIST, portNumber);
+		copy(OIDCatalogue.ADMIN_CYCLE_TIME_NUMERATOR, OIDCatalogue.OPER_CYCLE_TIME_NUMERATOR, portNumber);
+		copy(OIDCatalogue.ADMIN_CYCLE_TIME_DENOMINATOR, OIDCatalogue.OPER_CYCLE_TIME_DENOMINATOR, portNumber);
+		copy(OIDCatalogue.ADMIN_CYCLE_TIME_EXTENSION, OIDCatalogue.OPER_CYCLE_TIME_EXTENSION, portNumber);
+		copy(OIDCatalogue.ADMIN_BASE_TIME, OIDCatalogue.OPER_BASE_TIME, portNumber);
+		mib.put(OIDCatalogue.qbv(OIDCatalogue.CONFIG_CHANGE, portNumber), new Integer32(FALSE));
+		mib.put(OIDCatalogue.qbv(OIDCatalogue.CONFIG_CHANGE_TIME, portNumber), encodeNow());
+		mib.put(OIDCatalogue.qbv(OIDCatalogue.CONFIG_PENDING, portNumber), new Integer32(FALSE));
+	}
+
+	private void copy(int fromColumn, int toColumn, int portNumber) {
+		mib.put(OIDCatalogue.qbv(toColumn, portNumber), mib.get(OIDCatalogue.qbv(fromColumn, portNumber)));
+	}
+
+	private void fillMib(int portCount, int gclLength, List<String> lldpNeighbors) {
+		mib.put(OIDCatalogue.sysName(), new OctetString(sysName));
+
+		List<GCLEntry> gcl = new ArrayList<GCLEntry>(gclLength);
+		for (int i = 0; i < gclLength; i++) {
+			gcl.add(new GCLEntry(i, (byte) (1 << (i % 8)), GCL_ENTRY_TIME));
+		}
+		OctetString controlList = new OctetString(GCLCodec.encode(gcl));
+		long cycleTime = Math.max(1, gclLength * GCL_ENTRY_TIME);
+
+		for (int portNumber = 1; portNumber <= portCount; portNumber++) {
+			mib.put(OIDCatalogue.qbv(OIDCatalogue.GATE_ENABLED, portNumber), new Integer32(TRUE));
+			for (int column : new int[] { OIDCatalogue.ADMIN_CONTROL_LIST_LENGTH,
+					OIDCatalogue.OPER_CONTROL_LIST_LENGTH }) {
+				mib.put(OIDCatalogue.qbv(column, portNumber), new UnsignedInteger32(gclLength));
+			}
+			for (int column : new int[] { OIDCatalogue.ADMIN_CONTROL_LIST, OIDCatalogue.OPER_CONTROL_LIST }) {
+				mib.put(OIDCatalogue.qbv(column, portNumber), controlList);
+			}
+			for (int column : new int[] { OIDCatalogue.ADMIN_CYCLE_TIME_NUMERATOR,
+					OIDCatalogue.OPER_CYCLE_TIME_NUMERATOR }) {
+				mib.put(OIDCatalogue.qbv(column, portNumber), new UnsignedInteger32(cycleTime));
+			}
+			for (int column : new int[] { OIDCatalogue.ADMIN_CYCLE_TIME_DENOMINATOR,
+					OIDCatalogue.OPER_CYCLE_TIME_DENOMINATOR }) {
+				mib.put(OIDCatalogue.qbv(column, portNumber), new UnsignedInteger32(NANOSECONDS_PER_SECOND));
+			}
+			for (int column : new int[] { OIDCatalogue.ADMIN_CYCLE_TIME_EXTENSION,
+					OIDCatalogue.OPER_CYCLE_TIME_EXTENSION }) {
+				mib.put(OIDCatalogue.qbv(column, portNumber), new UnsignedInteger32(0));
+			}
+			for (int column : new int[] { OIDCatalogue.ADMIN_BASE_TIME, OIDCatalogue.OPER_BASE_TIME }) {
+				mib.put(OIDCatalogue.qbv(column, portNumber), encodePTPTime(0, 0));
+			}
+			mib.put(OIDCatalogue.qbv(OIDCatalogue.CONFIG_CHANGE, portNumber), new Integer32(FALSE));
+			mib.put(OIDCatalogue.qbv(OIDCatalogue.CONFIG_CHANGE_TIME, portNumber), encodeNow());
+			mib.put(OIDCatalogue.qbv(OIDCatalogue.CONFIG_PENDING, portNumber), new Integer32(FALSE));
+		}
+
+		// the remote table is filled once when the agent starts
+		mib.put(OIDCatalogue.lldpStatsRemTablesLastChangeTime(), new TimeTicks(0));
+		// rows of the remote table are indexed by time mark, local port and index
+		for (int i = 0; i < lldpNeighbors.size(); i++) {
+			int localPortNumber = i + 1;
+			OID sysNameOID = OIDCatalogue.lldpRemSysName();
+			sysNameOID.append(new OID(new int[] { 0, localPortNumber, 1 }));
+			mib.put(sysNameOID, new OctetString(lldpNeighbors.get(i)));
+			OID portIdOID = OIDCatalogue.lldpRemPortId();
+			portIdOID.append(new OID(new int[] { 0, localPortNumber, 1 }));
+			mib.put(portIdOID, new OctetString("port-" + localPortNumber));
+		}
+	}
+
+	private static OctetString encodeNow() {
+		long now = System.currentTimeMillis();
+		return encodePTPTime(now / 1000, (now % 1000) * 1000000);
+	}
+
+	// 48 bit seconds followed by 32 bit nanoseconds
+	private static OctetString encodePTPTime(long seconds, long nanoseconds) {
+		ByteBuffer buffer = ByteBuffer.allocate(10);
+		buffer.putShort((short) (seconds >> 32));
+		buffer.putInt((int) seconds);
+		buffer.putInt((int) nanoseconds);
+		return new OctetString(buffer.array());
+	}
+}
@@ -0,0 +1,77 @@
+package redecker.mickey.webcnc.perf.simulator;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.snmp4j.TransportStateReference;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+/**
+ * This class is a UDP transport that delays and drops the messages it sends
+ * 
+ * Every outgoing message of a simulated switch, including the reports of the
+ * engine ID discovery, is dropped with the loss rate and otherwise sent after
+ * the latency. A lost request and a lost response look the same to the
+ * backend, so only the sending side is disturbed.
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SimulatedUdpTransportMapping extends DefaultUdpTransportMapping {
+
+	private static final Logger logger = LogManager.getLogger(SimulatedUdpTransportMapping.class);
+
+	private final SimulationConditionsTuple conditions;
+	private final ScheduledExecutorService scheduler;
+	private final AtomicLong sentBytes = new AtomicLong(0);
+
+	/**
+	 * 
+	 * @param address    the local address to listen on
+	 * @param conditions the latency and loss rate of the messages
+	 * @param scheduler  the executor sending delayed messages
+	 * @throws IOException If the UDP socket can´t be opened
+	 */
+	public SimulatedUdpTransportMapping(UdpAddress address, SimulationConditionsTuple conditions,
+			ScheduledExecutorService scheduler) throws IOException {
+		super(address);
+		this.conditions = conditions;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Returns the number of bytes sent so far, including messages that are
+	 * dropped
+	 * 
+	 * @return number of sent bytes
+	 */
+	public long getSentBytes() {
+		return sentBytes.get();
+	}
+
+	@Override
+	public void sendMessage(UdpAddress targetAddress, byte[] message, TransportStateReference tmStateReference,
+			long timeoutMillis, int maxRetries) throws IOException {
+		sentBytes.addAndGet(message.length);
+		if (conditions.lossRate > 0 && ThreadLocalRandom.current().nextDouble() < conditions.lossRate) {
+			return;
+		}
+		if (conditions.latencyMillis <= 0) {
+			super.sendMessage(targetAddress, message, tmStateReference, timeoutMillis, maxRetries);
+			return;
+		}
+		scheduler.schedule(() -> {
+			try {
+				super.sendMessage(targetAddress, message, tmStateReference, timeoutMillis, maxRetries);
+			} catch (IOException e) {
+				logger.debug("Couldn´t send delayed message to " + targetAddress + ": " + e.getMessage());
+			}
+		}, conditions.latencyMillis, TimeUnit.MILLISECONDS);
+	}
+}
@@ -0,0 +1,15 @@
+package redecker.mickey.webcnc.perf.simulator;
+
+/**
+ * This class represents the network and agent conditions of simulated switches
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SimulationConditionsTuple {
+
+	public long latencyMillis; // added to the round trip of every message
+	public double lossRate; // probability that a message is dropped, between 0 and 1
+	public long processingDelayMillis; // time the agent needs to process a request
+
+}
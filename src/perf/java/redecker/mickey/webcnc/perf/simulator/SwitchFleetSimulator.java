@@ -0,0 +1,232 @@
+package redecker.mickey.webcnc.perf.simulator;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import redecker.mickey.webcnc.perf.PerfArguments;
+import redecker.mickey.webcnc.types.SwitchInfo;
+import redecker.mickey.webcnc.types.enums.AuthAlgorithm;
+import redecker.mickey.webcnc.types.enums.EncryptionAlgorithm;
+
+/**
+ * This class runs a fleet of simulated TSN switches on loopback ports
+ * 
+ * All switches share the same user, number of TSN ports and control list
+ * length. Port p of switch i is connected to switch i + p, so every switch has
+ * a neighbor on every port. The fleet provides the SwitchInfo of all switches,
+ * which can be fed to the backend directly or written to a switch config file.
+ * 
+ * Run standalone, the fleet keeps running until the process is killed:
+ * mvn -Pperf test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=redecker.mickey.webcnc.perf.simulator.SwitchFleetSimulator
+ * -Dexec.args="switches=100 ports=8 gclLength=16 latency=2 loss=0.01
+ * processingDelay=1 basePort=16100 config=./switchconfig.txt"
+ * 
+ * @author Mickey Redecker
+ *
+ */
+public class SwitchFleetSimulator {
+
+	private static final Logger logger = LogManager.getLogger(SwitchFleetSimulator.class);
+
+	public static final String USER_NAME = "simUser";
+	public static final String AUTH_PASSWORD = "simAuthPassword";
+	public static final String ENCRYPT_PASSWORD = "simEncryptPassword";
+
+	private static final int SCHEDULER_THREAD_COUNT = 4; // threads sending delayed responses
+
+	private final int portCount;
+	private final ScheduledExecutorService scheduler;
+	private final List<SimulatedSwitch> switches = new ArrayList<SimulatedSwitch>();
+
+	/**
+	 * Starts the simulated switches
+	 * 
+	 * @param switchCount the number of switches
+	 * @param portCount   the number of TSN ports of every switch
+	 * @param gclLength   the number of entries of every control list
+	 * @param basePort    the UDP port of the first switch, the others follow
+	 *                    consecutively. 0 lets every switch pick any free port
+	 * @param conditions  the latency, loss rate and processing delay of all
+	 *                    switches
+	 * @throws IOException If a UDP port can´t be opened
+	 */
+	public SwitchFleetSimulator(int switchCount, int portCount, int gclLength, int basePort,
+			SimulationConditionsTuple conditions) throws IOException {
+		if (switchCount < 1 || portCount < 1) {
+			throw new IllegalArgumentException("switchCount and portCount must be greater than 0");
+		}
+		this.portCount = portCount;
+		this.scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREAD_COUNT, runnable -> {
+			Thread thread = new Thread(runnable, "switch-simulator");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			for (int i = 0; i < switchCount; i++) {
+				List<String> lldpNeighbors = new ArrayList<String>(portCount);
+				for (int portNumber = 1; portNumber <= portCount; portNumber++) {
+					lldpNeighbors.add(makeSysName((i + portNumber) % switchCount));
+				}
+				switches.add(new SimulatedSwitch(makeSysName(i), basePort == 0 ? 0 : basePort + i, portCount,
+						gclLength, lldpNeighbors, USER_NAME, AuthAlgorithm.SHA1, AUTH_PASSWORD,
+						EncryptionAlgorithm.AES128, ENCRYPT_PASSWORD, conditions, scheduler));
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		logger.info("Switch simulator started " + switchCount + " switches with " + portCount + " ports each");
+	}
+
+	// getters
+	public List<SimulatedSwitch> getSwitches() {
+		return switches;
+	}
+
+	/**
+	 * Returns the SwitchInfo of every simulated switch, identified by its sysName
+	 * 
+	 * @return List of SwitchInfo objects
+	 */
+	public List<SwitchInfo> getSwitchInfos() {
+		StringBuilder tsnPorts = new StringBuilder();
+		for (int portNumber = 1; portNumber <= portCount; portNumber++) {
+			tsnPorts.append(portNumber == 1 ? "" : ",").append(portNumber);
+		}
+		List<SwitchInfo> switchInfos = new LinkedList<SwitchInfo>();
+		for (SimulatedSwitch simulatedSwitch : switches) {
+			switchInfos.add(new SwitchInfo(simulatedSwitch.getSysName(), "127.0.0.1", simulatedSwitch.getPort(),
+					USER_NAME, "SHA1", AUTH_PASSWORD, "AES128", ENCRYPT_PASSWORD, tsnPorts.toString()));
+		}
+		return switchInfos;
+	}
+
+	/**
+	 * Returns the number of requests all switches received so far
+	 * 
+	 * @return number of received requests
+	 */
+	public long getRequestCount() {
+		long requestCount = 0;
+		for (SimulatedSwitch simulatedSwitch : switches) {
+			requestCount += simulatedSwitch.getRequestCount();
+		}
+		return requestCount;
+	}
+
+	/**
+	 * Returns the number of bytes of all responses the switches sent so far
+	 * 
+	 * @return number of sent bytes
+	 */
+	public long getResponseBytes() {
+		long responseBytes = 0;
+		for (SimulatedSwitch simulatedSwitch : switches) {
+			responseBytes += simulatedSwitch.getResponseBytes();
+		}
+		return responseBytes;
+	}
+
+	/**
+	 * Writes all switches to a file in the format of the switch config file of
+	 * the backend
+	 * 
+	 * @param path the path of the file, an existing file is overwritten
+	 * @throws IOException If the file can´t be written
+	 */
+	public void writeSwitchConfig(String path) throws IOException {
+		writeSwitchConfig(path, "# simulated switches of the switch simulator");
+	}
+
+	/**
+	 * Writes all switches to a file in the format of the switch config file of
+	 * the backend
+	 * 
+	 * @param path    the path of the file, an existing file is overwritten
+	 * @param comment the first line of the file, has to start with #
+	 * @throws IOException If the file can´t be written
+	 */
+	public void writeSwitchConfig(String path, String comment) throws IOException {
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
+			writer.write(comment);
+			writer.newLine();
+			for (SwitchInfo switchInfo : getSwitchInfos()) {
+				writer.write(switchInfo.getSwitchIdentifier() + ":");
+				writer.newLine();
+				writer.write("address = " + switchInfo.getAddress());
+				writer.newLine();
+				writer.write("snmpport = " + switchInfo.getPort());
+				writer.newLine();
+				writer.write("authUserName = " + switchInfo.getAuthUserName());
+				writer.newLine();
+				writer.write("authAlgorithm = " + switchInfo.getAuthAlgorithm());
+				writer.newLine();
+				writer.write("authPassWord = " + switchInfo.getAuthPassword());
+				writer.newLine();
+				writer.write("encryptAlgorithm = " + switchInfo.getEncryptAlgorithm());
+				writer.newLine();
+				writer.write("encryptPassword = " + switchInfo.getEncryptPassword());
+				writer.newLine();
+				writer.write("tsnPorts = " + switchInfo.getTSNPortsString());
+				writer.newLine();
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Stops all switches
+	 */
+	public void close() {
+		for (SimulatedSwitch simulatedSwitch : switches) {
+			try {
+				simulatedSwitch.close();
+			} catch (IOException e) {
+				logger.debug("Couldn´t close switch " + simulatedSwitch.getSysName() + ": " + e.getMessage());
+			}
+		}
+		scheduler.shutdownNow();
+	}
+
+	/**
+	 * Starts a fleet with the parameters given as key=value arguments and keeps
+	 * it running
+	 * 
+	 * @param args switches, ports, gclLength, basePort, latency, loss,
+	 *             processingDelay and config (path of a switch config file to
+	 *             write)
+	 */
+	public static void main(String[] args) throws Exception {
+		PerfArguments arguments = new PerfArguments(args);
+		SimulationConditionsTuple conditions = new SimulationConditionsTuple();
+		conditions.latencyMillis = arguments.getLong("latency", 0);
+		conditions.lossRate = arguments.getDouble("loss", 0);
+		conditions.processingDelayMillis = arguments.getLong("processingDelay", 0);
+
+		SwitchFleetSimulator fleet = new SwitchFleetSimulator(arguments.getInt("switches", 10),
+				arguments.getInt("ports", 8), arguments.getInt("gclLength", 16), arguments.getInt("basePort", 16100),
+				conditions);
+		String config = arguments.getString("config", null);
+		if (config != null) {
+			fleet.writeSwitchConfig(config);
+			logger.info("Switch config written to " + config);
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(fleet::close));
+		Thread.currentThread().join();
+	}
+
+	private static String makeSysName(int index) {
+		return "simswitch" + index;
+	}
+}
@@ -0,0 +1,135 @@
+package redecker.mickey.webcnc.switchcomms.talker;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import redecker.mickey.webcnc.types.GCLEntry;
+
+/**
+ * Tests the encoding and decoding of gate control lists by the GCLCodec
+ * 
+ * @author Mickey Redecker
+ *
+ */
+class GCLCodecTest {
+
+	private static final long MAX_SAFE_INTEGER = 9007199254740991L; // max number int in typescript
+
+	@Test
+	void encodesAndDecodesEmptyList() {
+		assertRoundTrip(makeGCL(0));
+	}
+
+	@Test
+	void encodesAndDecodesSingleEntry() {
+		assertRoundTrip(makeGCL(1));
+	}
+
+	@Test
+	void encodesAndDecodesLongestList() {
+		Assertions.assertEquals(9362, GCLCodec.MAX_ENTRIES);
+		assertRoundTrip(makeGCL(GCLCodec.MAX_ENTRIES));
+	}
+
+	@Test
+	void rejectsListLongerThanOctetString() {
+		List<GCLEntry> gcl = makeGCL(GCLCodec.MAX_ENTRIES + 1);
+		Assertions.assertThrows(IllegalArgumentException.class, () -> GCLCodec.encode(gcl));
+	}
+
+	@Test
+	void keepsUnsignedTimeInterval() {
+		List<GCLEntry> gcl = new ArrayList<GCLEntry>();
+		gcl.add(new GCLEntry(1, (byte) 0xFF, 4294967295L));
+		gcl.add(new GCLEntry(2, (byte) 0x00, 0));
+		assertRoundTrip(gcl);
+	}
+
+	@Test
+	void skipsUnknownTLVs() {
+		ByteBuffer buffer = ByteBuffer.allocate(32);
+		putSetGateStates(buffer, (byte) 0x80, 1000);
+		buffer.put((byte) 1).put((byte) 3).put(new byte[3]); // other operation
+		buffer.put((byte) 0).put((byte) 2).put(new byte[2]); // setGateStates with another length
+		putSetGateStates(buffer, (byte) 0x01, 2000);
+		buffer.flip();
+
+		List<GCLEntry> gcl = GCLCodec.decode(buffer);
+
+		Assertions.assertEquals(2, gcl.size());
+		Assertions.assertEquals((byte) 0x80, gcl.get(0).getGateMask());
+		Assertions.assertEquals(1000L, gcl.get(0).getTimeInNs());
+		Assertions.assertEquals((byte) 0x01, gcl.get(1).getGateMask());
+		Assertions.assertEquals(2000L, gcl.get(1).getTimeInNs());
+		// the skipped TLVs don´t count as positions of the list
+		Assertions.assertEquals(GCLCodec.makeEntryIdentifier(1, (byte) 0x01, 2000),
+				gcl.get(1).getEntryIdentifier());
+		Assertions.assertFalse(buffer.hasRemaining());
+	}
+
+	@Test
+	void stopsAtTruncatedTLV() {
+		ByteBuffer buffer = ByteBuffer.allocate(11);
+		putSetGateStates(buffer, (byte) 0x40, 500);
+		buffer.put((byte) 0).put((byte) 5).put(new byte[2]);
+		buffer.flip();
+
+		Assertions.assertEquals(1, GCLCodec.decode(buffer).size());
+	}
+
+	@Test
+	void derivesStableIdentifiers() {
+		byte[] encoded = GCLCodec.encode(makeGCL(100));
+
+		List<GCLEntry> first = GCLCodec.decode(ByteBuffer.wrap(encoded));
+		List<GCLEntry> second = GCLCodec.decode(ByteBuffer.wrap(encoded));
+
+		for (int i = 0; i < first.size(); i++) {
+			long identifier = first.get(i).getEntryIdentifier();
+			Assertions.assertEquals(identifier, second.get(i).getEntryIdentifier());
+			Assertions.assertTrue(identifier >= 0 && identifier <= MAX_SAFE_INTEGER);
+		}
+	}
+
+	@Test
+	void derivesIdentifiersFromPosition() {
+		List<GCLEntry> gcl = new ArrayList<GCLEntry>();
+		gcl.add(new GCLEntry(1, (byte) 0x0F, 1000));
+		gcl.add(new GCLEntry(2, (byte) 0x0F, 1000));
+
+		List<GCLEntry> decoded = GCLCodec.decode(ByteBuffer.wrap(GCLCodec.encode(gcl)));
+
+		Assertions.assertNotEquals(decoded.get(0).getEntryIdentifier(), decoded.get(1).getEntryIdentifier());
+	}
+
+	// encodes and decodes the list and compares the gate states and time intervals
+	private static void assertRoundTrip(List<GCLEntry> gcl) {
+		byte[] encoded = GCLCodec.encode(gcl);
+		Assertions.assertEquals(GCLCodec.TLV_SIZE * gcl.size(), encoded.length);
+
+		List<GCLEntry> decoded = GCLCodec.decode(ByteBuffer.wrap(encoded));
+
+		Assertions.assertEquals(gcl.size(), decoded.size());
+		for (int i = 0; i < gcl.size(); i++) {
+			Assertions.assertEquals(gcl.get(i).getGateMask(), decoded.get(i).getGateMask());
+			Assertions.assertEquals(gcl.get(i).getTimeInNs(), decoded.get(i).getTimeInNs());
+		}
+	}
+
+	// makes a list whose entries all differ
+	private static List<GCLEntry> makeGCL(int length) {
+		List<GCLEntry> gcl = new ArrayList<GCLEntry>(length);
+		for (int i = 0; i < length; i++) {
+			gcl.add(new GCLEntry(i, (byte) i, 1000L * (i + 1)));
+		}
+		return gcl;
+	}
+
+	private static void putSetGateStates(ByteBuffer buffer, byte gateMask, int timeInNs) {
+		buffer.put((byte) 0).put((byte) 5).put(gateMask).putInt(timeInNs);
+	}
+}